@@ -17,7 +17,11 @@ L.Icon.Default.mergeOptions({
 
 const MapView = () => {
   const [allResources, setAllResources] = useState([]);
+  const [clusters, setClusters] = useState([]);
+  const [areaNotice, setAreaNotice] = useState(null);
   const [filteredResources, setFilteredResources] = useState([]);
+  // Popup details loaded on click, keyed like the markers
+  const [details, setDetails] = useState({});
   const [filters, setFilters] = useState({ 
     LIBRARY: true, 
     CLINIC: true, 
@@ -30,22 +34,22 @@ const MapView = () => {
   const [mapError, setMapError] = useState(null);
   const [isFilterPanelCollapsed, setIsFilterPanelCollapsed] = useState(false);
   const mapRef = useRef(null);
+  // Area of the last marker request, needed to look up Overpass results by OSM id
+  const lastAreaRef = useRef(null);
   
-  const MAX_ENTITIES = 50;
+  // Markers carry only id, type and coordinates, so many more fit in a response than full resources
+  const MAX_MARKERS = 1000;
+  // The API rejects areas wider than 100 miles
+  const MAX_RADIUS_KM = 160.9;
+
+  const markerKey = (resource) => resource.id || resource.osmId || `${resource.lat},${resource.lon}`;
 
   // Apply filters whenever filters or allResources change
   useEffect(() => {
-    console.log('Applying filters - All resources:', allResources.length, 'Filters:', filters);
-    const filtered = allResources.filter(resource => {
-      const isIncluded = filters[resource.type] === true;
-      console.log(`Resource ${resource.name} (${resource.type}): ${isIncluded ? 'SHOWN' : 'HIDDEN'}`);
-      return isIncluded;
-    });
-    console.log('Filtered resources result:', filtered.length);
-    setFilteredResources(filtered);
+    setFilteredResources(allResources.filter(resource => filters[resource.type] === true));
   }, [allResources, filters]);
 
-  // Function to fetch resources for visible area with entity limit checking
+  // Function to fetch markers for the visible area
   const fetchResourcesForBounds = useCallback(async (bounds) => {
     if (!bounds) return;
     
@@ -61,86 +65,55 @@ const MapView = () => {
       ) / 1000; // Convert to kilometers
       
       // Use a larger search radius to capture more entities
-      const searchRadius = Math.max(radius * 2, 5.0); // At least 5km, or 2x the bounds radius
+      const searchRadius = Math.min(Math.max(radius * 2, 5.0), MAX_RADIUS_KM); // At least 5km, or 2x the bounds radius
       
-      let fetchedResources = [];
+      // Single combined request: the backend merges stored and Overpass resources, deduplicates
+      // them by OSM id and returns the closest MAX_MARKERS as parallel arrays, or clusters when dense
+      const area = { lat: center.lat, lon: center.lng, radiusKm: searchRadius };
+      console.log('Fetching area markers:', area);
       
-      // Try Overpass API first with expanded search parameters
-      try {
-        console.log('Fetching from Overpass API:', { 
-          lat: center.lat, 
-          lon: center.lng, 
-          radiusKm: searchRadius 
-        });
-        
-        // Try multiple API calls for different resource types to get more comprehensive data
-        const resourceTypes = ['amenity=library', 'amenity=clinic', 'amenity=hospital', 'amenity=pharmacy', 'amenity=food_bank', 'amenity=social_facility'];
-        const overpassPromises = resourceTypes.map(type => 
-          axios.get('/api/resources/fetch/overpass', {
-            params: {
-              lat: center.lat,
-              lon: center.lng,
-              radiusKm: searchRadius,
-              type: type,
-              timeout: 10000 // 10 second timeout
-            }
-          }).catch(err => {
-            console.warn(`Failed to fetch ${type}:`, err.message);
-            return { data: [] };
-          })
-        );
-        
-        const overpassResponses = await Promise.all(overpassPromises);
-        const allOverpassData = overpassResponses.flatMap(response => response.data || []);
-        
-        console.log('Overpass API combined response:', allOverpassData.length, 'resources');
-        
-        if (allOverpassData.length > 0) {
-          fetchedResources = allOverpassData;
-        }
-      } catch (overpassError) {
-        console.warn('Overpass API failed, falling back to database:', overpassError.message);
-      }
+      const response = await axios.get('/api/resources/markers', {
+        params: { ...area, limit: MAX_MARKERS, format: 'arrays' },
+        timeout: 30000
+      });
       
-      // If no Overpass data, fallback to database with larger radius
-      if (fetchedResources.length === 0) {
-        try {
-          const nearbyResponse = await axios.get('/api/resources/search/nearby', {
-            params: {
-              lat: center.lat,
-              lon: center.lng,
-              dist: searchRadius * 0.621371, // Convert km to miles
-              limit: MAX_ENTITIES + 10 // Fetch a bit more than limit to check for overflow
-            }
-          });
-          
-          fetchedResources = nearbyResponse.data || [];
-          console.log('Database response:', fetchedResources.length, 'resources');
-        } catch (dbError) {
-          console.error('Database fallback failed:', dbError.message);
-          throw dbError;
-        }
-      }
+      const {
+        arrays = {},
+        total = 0,
+        overflow = false,
+        strategy = 'POINTS',
+        radiusKm: searchedRadiusKm = searchRadius,
+        clusters: areaClusters = []
+      } = response.data || {};
+      const { ids = [], osmIds = [], types = [], lats = [], lons = [] } = arrays;
+      const markers = types.map((type, i) => ({
+        id: ids[i],
+        osmId: osmIds[i],
+        type,
+        lat: lats[i],
+        lon: lons[i]
+      }));
+      console.log('Markers response:', strategy, markers.length, 'of', total, 'markers');
       
-      // Check entity count limit
-      if (fetchedResources.length > MAX_ENTITIES) {
-        const errorMessage = `Too many entities found (${fetchedResources.length}). This area contains more than ${MAX_ENTITIES} resources. Please zoom in to a smaller area to reduce the number of entities.`;
-        setMapError(errorMessage);
-        console.warn('Entity limit exceeded:', fetchedResources.length, 'entities found');
+      lastAreaRef.current = area;
+      setDetails({});
+      
+      // Dense area: the backend answered with per-cell counts instead of markers
+      if (strategy === 'CLUSTERS') {
+        setAllResources([]);
+        setClusters(areaClusters);
+        setAreaNotice(`About ${total} resources here, shown as ${areaClusters.length} clusters. Zoom in to see individual resources.`);
         return;
       }
-      
-      // Remove duplicates based on coordinates and name
-      const uniqueResources = fetchedResources.filter((resource, index, array) => 
-        array.findIndex(r => 
-          r.name === resource.name && 
-          Math.abs(r.location.x - resource.location.x) < 0.0001 && 
-          Math.abs(r.location.y - resource.location.y) < 0.0001
-        ) === index
-      );
-      
-      console.log('Setting all resources (after deduplication):', uniqueResources.length);
-      setAllResources(uniqueResources);
+      setClusters([]);
+      if (strategy === 'REDUCED_AREA') {
+        setAreaNotice(`Showing resources within ${searchedRadiusKm.toFixed(1)} km of the center. Zoom in to see the rest.`);
+      } else {
+        setAreaNotice(overflow
+          ? `Showing the ${MAX_MARKERS} resources closest to the center. Zoom in to see the rest.`
+          : null);
+      }
+      setAllResources(markers);
       
     } catch (err) {
       const errorMessage = err.response?.data?.message || err.message || 'Failed to fetch resources for visible area';
@@ -151,6 +124,21 @@ const MapView = () => {
     }
   }, []);
 
+  // Full resource for a marker's popup: by id when stored, otherwise by OSM id within the last area
+  const loadDetails = useCallback(async (resource) => {
+    const key = markerKey(resource);
+    if (details[key]) return;
+    try {
+      const response = resource.id
+        ? await axios.get(`/api/resources/${resource.id}`)
+        : await axios.get('/api/resources/osm', { params: { osmId: resource.osmId, ...lastAreaRef.current } });
+      setDetails(prev => ({ ...prev, [key]: response.data }));
+    } catch (err) {
+      console.error('Error loading resource details:', err);
+      setDetails(prev => ({ ...prev, [key]: { error: true } }));
+    }
+  }, [details]);
+
   const handleFilterChange = (type) => {
     console.log(`Filter change: ${type} toggled`);
     setFilters(prev => ({
@@ -161,6 +149,9 @@ const MapView = () => {
 
   const clearAnalysis = () => {
     setAllResources([]);
+    setClusters([]);
+    setDetails({});
+    setAreaNotice(null);
     setFilteredResources([]);
     setMapError(null);
   };
@@ -230,6 +221,23 @@ const MapView = () => {
     return markerIcon;
   };
 
+  // Cluster icons are keyed by size bucket so the cache stays small
+  const getClusterIcon = (count) => {
+    const cacheKey = `cluster-${count}`;
+    if (markerIconCache.current.has(cacheKey)) {
+      return markerIconCache.current.get(cacheKey);
+    }
+    const size = count < 10 ? 30 : count < 100 ? 38 : 46;
+    const clusterIcon = L.divIcon({
+      className: 'custom-marker',
+      html: `<div style="background-color: rgba(52, 152, 219, 0.85); width: ${size}px; height: ${size}px; border-radius: 50%; border: 3px solid white; box-shadow: 0 3px 10px rgba(0,0,0,0.4); display: flex; align-items: center; justify-content: center; font-size: 12px; color: white; font-weight: bold;">${count}</div>`,
+      iconSize: [size, size],
+      iconAnchor: [size / 2, size / 2]
+    });
+    markerIconCache.current.set(cacheKey, clusterIcon);
+    return clusterIcon;
+  };
+
   // Format resource type for display
   const formatResourceType = (type) => {
     return type.replace('_', ' ').toLowerCase().replace(/\b\w/g, l => l.toUpperCase());
@@ -303,8 +311,11 @@ const MapView = () => {
             ✓ Loaded {allResources.length} resources ({filteredResources.length} visible)
           </div>
         )}
+        {areaNotice && (
+          <div className="low-results-warning">{areaNotice}</div>
+        )}
         <div className="entity-limit-info">
-          Max {MAX_ENTITIES} entities per area. Zoom in if you get an error.
+          Up to {MAX_MARKERS} resources per area, closest to the center first.
         </div>
       </div>
 
@@ -321,39 +332,80 @@ const MapView = () => {
           attribution='&copy; <a href="https://www.openstreetmap.org/copyright">OpenStreetMap</a> contributors'
         />
         
+        {/* Dense areas come back as clusters; only show the types that pass the filters */}
+        {clusters.map(cluster => {
+          const visibleCount = Object.entries(cluster.types || {})
+            .filter(([type]) => filters[type] === true)
+            .reduce((sum, [, count]) => sum + count, 0);
+          if (visibleCount === 0) return null;
+          return (
+            <Marker
+              key={`cluster-${cluster.lat}-${cluster.lon}`}
+              position={[cluster.lat, cluster.lon]}
+              icon={getClusterIcon(visibleCount)}
+            >
+              <Popup>
+                <div className="popup-content">
+                  <h4>{visibleCount} resources</h4>
+                  {Object.entries(cluster.types || {})
+                    .filter(([type]) => filters[type] === true)
+                    .map(([type, count]) => (
+                      <p key={type}>
+                        <span style={{ color: getMarkerColor(type), fontWeight: 'bold' }}>
+                          {formatResourceType(type)}
+                        </span>: {count}
+                      </p>
+                    ))}
+                </div>
+              </Popup>
+            </Marker>
+          );
+        })}
+
         {/* Render filtered resources with consistent color coding */}
-        {filteredResources.map(resource => (
-          <Marker 
-            key={`resource-${resource.id}`} 
-            position={[resource.location.y, resource.location.x]}
-            icon={getMarkerIcon(resource)}
-          >
-            <Popup>
-              <div className="popup-content">
-                <h4>{resource.name}</h4>
-                <p>
-                  <strong>Type:</strong> 
-                  <span style={{ 
-                    color: getMarkerColor(resource.type), 
-                    fontWeight: 'bold',
-                    marginLeft: '5px'
-                  }}>
-                    {formatResourceType(resource.type)}
-                  </span>
-                </p>
-                <p><strong>Address:</strong> {resource.address}</p>
-                <div className="popup-actions">
-                  <button 
-                    className="popup-button"
-                    onClick={() => window.open(`https://maps.google.com/?q=${resource.address}`, '_blank')}
-                  >
-                    Directions
-                  </button>
+        {filteredResources.map(resource => {
+          const key = markerKey(resource);
+          const detail = details[key];
+          return (
+            <Marker 
+              key={`resource-${key}`} 
+              position={[resource.lat, resource.lon]}
+              icon={getMarkerIcon(resource)}
+              eventHandlers={{ popupopen: () => loadDetails(resource) }}
+            >
+              <Popup>
+                <div className="popup-content">
+                  <h4>{detail && !detail.error ? detail.name : formatResourceType(resource.type)}</h4>
+                  <p>
+                    <strong>Type:</strong> 
+                    <span style={{ 
+                      color: getMarkerColor(resource.type), 
+                      fontWeight: 'bold',
+                      marginLeft: '5px'
+                    }}>
+                      {formatResourceType(resource.type)}
+                    </span>
+                  </p>
+                  {!detail && <p>Loading details...</p>}
+                  {detail?.error && <p>Details are not available.</p>}
+                  {detail && !detail.error && (
+                    <>
+                      <p><strong>Address:</strong> {detail.address}</p>
+                      <div className="popup-actions">
+                        <button 
+                          className="popup-button"
+                          onClick={() => window.open(`https://maps.google.com/?q=${detail.address}`, '_blank')}
+                        >
+                          Directions
+                        </button>
+                      </div>
+                    </>
+                  )}
                 </div>
-              </div>
-            </Popup>
-          </Marker>
-        ))}
+              </Popup>
+            </Marker>
+          );
+        })}
       </MapContainer>
 
       {/* Additional CSS styles for the collapsible panel */}
@@ -0,0 +1,46 @@
+// Polygon search with a complex boundary: a star-shaped district around Dallas with VERTICES
+// vertices, searched with MongoDB $geoWithin (mode=db) and with the in-process grid (mode=grid).
+// Compare the per-scenario http_req_duration in the summary.
+// Usage: k6 run -e BASE_URL=http://localhost:8080 -e VERTICES=5000 loadtest/polygon-search.k6.js
+import http from 'k6/http';
+import { check } from 'k6';
+
+const baseUrl = __ENV.BASE_URL || 'http://localhost:8080';
+const vertices = parseInt(__ENV.VERTICES || '5000', 10);
+
+function starPolygon(centerLon, centerLat, count) {
+  const ring = [];
+  for (let i = 0; i < count; i++) {
+    const angle = (2 * Math.PI * i) / count;
+    const radius = i % 2 === 0 ? 0.15 : 0.08;
+    ring.push([centerLon + radius * Math.cos(angle), centerLat + radius * Math.sin(angle)]);
+  }
+  ring.push(ring[0]);
+  return { type: 'Polygon', coordinates: [ring] };
+}
+
+const body = JSON.stringify(starPolygon(-96.797, 32.7767, vertices));
+const params = { headers: { 'Content-Type': 'application/json' } };
+
+export const options = {
+  scenarios: {
+    db: {
+      executor: 'constant-vus',
+      vus: parseInt(__ENV.VUS || '20', 10),
+      duration: __ENV.DURATION || '30s',
+      env: { MODE: 'db' },
+    },
+    grid: {
+      executor: 'constant-vus',
+      vus: parseInt(__ENV.VUS || '20', 10),
+      duration: __ENV.DURATION || '30s',
+      startTime: __ENV.DURATION || '30s',
+      env: { MODE: 'grid' },
+    },
+  },
+};
+
+export default function () {
+  const res = http.post(`${baseUrl}/api/resources/search/polygon?mode=${__ENV.MODE}&limit=1000`, body, params);
+  check(res, { 'status is 200': (r) => r.status === 200 });
+}
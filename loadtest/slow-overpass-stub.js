@@ -0,0 +1,24 @@
+// Minimal Overpass stand-in that answers every query after a fixed delay.
+// Usage: DELAY_MS=500 PORT=9090 node loadtest/slow-overpass-stub.js
+const http = require('http');
+
+const delayMs = parseInt(process.env.DELAY_MS || '500', 10);
+const port = parseInt(process.env.PORT || '9090', 10);
+
+const body = JSON.stringify({
+  version: 0.6,
+  elements: [
+    { type: 'node', id: 1, lat: 32.7767, lon: -96.797, tags: { amenity: 'library', name: 'Stub Library' } },
+    { type: 'node', id: 2, lat: 32.78, lon: -96.8, tags: { amenity: 'pharmacy', name: 'Stub Pharmacy' } }
+  ]
+});
+
+http.createServer((req, res) => {
+  req.resume();
+  req.on('end', () => {
+    setTimeout(() => {
+      res.writeHead(200, { 'Content-Type': 'application/json' });
+      res.end(body);
+    }, delayMs);
+  });
+}).listen(port, () => console.log(`Slow Overpass stub on :${port} (${delayMs}ms delay)`));
@@ -0,0 +1,25 @@
+// Throughput under slow upstream: every request uses unique coordinates so it misses
+// the cache and blocks on the Overpass stub. Compare the summary (http_reqs/s, p95)
+// with VIRTUAL_THREADS_ENABLED=false and =true.
+// Usage: k6 run -e BASE_URL=http://localhost:8080 -e VUS=1000 loadtest/slow-upstream.k6.js
+import http from 'k6/http';
+import { check } from 'k6';
+
+const baseUrl = __ENV.BASE_URL || 'http://localhost:8080';
+
+export const options = {
+  scenarios: {
+    slow_upstream: {
+      executor: 'constant-vus',
+      vus: parseInt(__ENV.VUS || '1000', 10),
+      duration: __ENV.DURATION || '60s',
+    },
+  },
+};
+
+export default function () {
+  const lat = 32.5 + Math.random();
+  const lon = -97.5 + Math.random();
+  const res = http.get(`${baseUrl}/api/resources/fetch/overpass?lat=${lat}&lon=${lon}&radiusKm=1`);
+  check(res, { 'status is 200': (r) => r.status === 200 });
+}
@@ -0,0 +1,33 @@
+package com.example.communitymap.config;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.boot.actuate.health.HealthIndicator;
+import org.springframework.stereotype.Component;
+
+/**
+ * "bootstrap" health: out of service until {@link DataBootstrap} has ensured indexes and
+ * loaded seed data. Part of the readiness group, so load balancers only route to the node then.
+ */
+@Component
+@RequiredArgsConstructor
+public class BootstrapHealthIndicator implements HealthIndicator {
+
+    private final DataBootstrap dataBootstrap;
+
+    @Override
+    public Health health() {
+        if (dataBootstrap.isReady()) {
+            return Health.up()
+                .withDetail("indexes", dataBootstrap.getIndexCount())
+                .withDetail("seeded", dataBootstrap.getSeededCount())
+                .withDetail("durationMs", dataBootstrap.getDurationMs())
+                .build();
+        }
+        Health.Builder builder = Health.outOfService().withDetail("phase", dataBootstrap.getPhase());
+        if (dataBootstrap.getLastError() != null) {
+            builder.withDetail("lastError", dataBootstrap.getLastError());
+        }
+        return builder.build();
+    }
+}
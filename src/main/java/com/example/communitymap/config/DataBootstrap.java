@@ -0,0 +1,134 @@
+package com.example.communitymap.config;
+
+import com.example.communitymap.model.Resource;
+import com.example.communitymap.service.SeedService;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.index.IndexDefinition;
+import org.springframework.data.mongodb.core.index.IndexOperations;
+import org.springframework.data.mongodb.core.index.MongoPersistentEntityIndexResolver;
+import org.springframework.data.mongodb.core.mapping.MongoMappingContext;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+/**
+ * Prepares the database after startup instead of during it: ensures the indexes declared on
+ * {@link Resource} (auto-index-creation is off so they no longer block context startup), then
+ * loads the seed files. Runs on a background thread and retries until MongoDB is reachable;
+ * {@link BootstrapHealthIndicator} keeps the readiness probe down until it has finished.
+ */
+@Component
+@Slf4j
+public class DataBootstrap {
+
+    private final MongoTemplate mongoTemplate;
+    private final SeedService seedService;
+    private final boolean seedEnabled;
+    private final Duration retryInterval;
+
+    private volatile String phase = "starting";
+    private volatile boolean ready;
+    private volatile String lastError;
+    private volatile int indexCount;
+    private volatile int seededCount;
+    private volatile long durationMs;
+    private volatile Thread worker;
+
+    public DataBootstrap(MongoTemplate mongoTemplate,
+                         SeedService seedService,
+                         @Value("${bootstrap.seed.enabled:true}") boolean seedEnabled,
+                         @Value("${bootstrap.retry-interval:PT10S}") Duration retryInterval) {
+        this.mongoTemplate = mongoTemplate;
+        this.seedService = seedService;
+        this.seedEnabled = seedEnabled;
+        this.retryInterval = retryInterval;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    void start() {
+        Thread thread = new Thread(this::run, "data-bootstrap");
+        thread.setDaemon(true);
+        worker = thread;
+        thread.start();
+    }
+
+    @PreDestroy
+    void stop() {
+        Thread thread = worker;
+        if (thread != null) {
+            thread.interrupt();
+        }
+    }
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    public String getPhase() {
+        return phase;
+    }
+
+    public String getLastError() {
+        return lastError;
+    }
+
+    public int getIndexCount() {
+        return indexCount;
+    }
+
+    public int getSeededCount() {
+        return seededCount;
+    }
+
+    public long getDurationMs() {
+        return durationMs;
+    }
+
+    private void run() {
+        long start = System.nanoTime();
+        while (!Thread.currentThread().isInterrupted()) {
+            try {
+                phase = "indexes";
+                indexCount = ensureIndexes();
+                if (seedEnabled) {
+                    phase = "seeding";
+                    seededCount = seedService.loadConfigured();
+                }
+                durationMs = (System.nanoTime() - start) / 1_000_000;
+                phase = "ready";
+                lastError = null;
+                ready = true;
+                log.info("Data bootstrap finished in {} ms: {} indexes ensured, {} seed resources inserted",
+                    durationMs, indexCount, seededCount);
+                return;
+            } catch (Exception e) {
+                lastError = e.getMessage();
+                log.warn("Data bootstrap failed during {}, retrying in {}: {}", phase, retryInterval, e.getMessage());
+                try {
+                    Thread.sleep(retryInterval.toMillis());
+                } catch (InterruptedException interrupted) {
+                    return;
+                }
+            }
+        }
+    }
+
+    // The same indexes auto-index-creation would build, from the mapping annotations
+    private int ensureIndexes() {
+        MongoMappingContext mappingContext = (MongoMappingContext) mongoTemplate.getConverter().getMappingContext();
+        MongoPersistentEntityIndexResolver resolver = new MongoPersistentEntityIndexResolver(mappingContext);
+        IndexOperations indexOperations = mongoTemplate.indexOps(Resource.class);
+        int count = 0;
+        for (IndexDefinition index : resolver.resolveIndexFor(Resource.class)) {
+            // A no-op when the index exists; MongoDB builds new ones without blocking reads and writes for long
+            indexOperations.ensureIndex(index);
+            count++;
+        }
+        return count;
+    }
+}
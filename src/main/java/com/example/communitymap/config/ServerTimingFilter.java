@@ -0,0 +1,162 @@
+package com.example.communitymap.config;
+
+import com.example.communitymap.util.RequestTimings;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.ServletOutputStream;
+import jakarta.servlet.WriteListener;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import jakarta.servlet.http.HttpServletResponseWrapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.time.Duration;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Starts a {@link RequestTimings} recorder per API request, adds the breakdown as a
+ * Server-Timing header just before the body is written, and logs a sample of slow requests.
+ */
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE)
+@Slf4j
+public class ServerTimingFilter extends OncePerRequestFilter {
+
+    private static final String HEADER = "Server-Timing";
+
+    @Value("${timing.enabled:true}")
+    private boolean enabled;
+
+    @Value("${timing.slow-threshold:PT1S}")
+    private Duration slowThreshold;
+
+    @Value("${timing.slow-sample-rate:0.1}")
+    private double slowSampleRate;
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !enabled || !request.getRequestURI().startsWith("/api/");
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        RequestTimings timings = RequestTimings.start();
+        TimingResponse timedResponse = new TimingResponse(response, timings);
+        try {
+            chain.doFilter(request, timedResponse);
+        } finally {
+            RequestTimings.clear();
+            // Bodiless responses such as 304 never asked for the output stream
+            timedResponse.addTimingHeader();
+            // Streams (SSE, NDJSON) are long-lived by design
+            if (!isAsyncStarted(request)) {
+                logIfSlow(request, timedResponse, timings);
+            }
+        }
+    }
+
+    private void logIfSlow(HttpServletRequest request, TimingResponse response, RequestTimings timings) {
+        long elapsed = timings.elapsedMillis();
+        if (elapsed < slowThreshold.toMillis() || ThreadLocalRandom.current().nextDouble() >= slowSampleRate) {
+            return;
+        }
+        String query = request.getQueryString();
+        log.warn("slow_request method={} path={}{} status={} total_ms={} response_bytes={} {}",
+            request.getMethod(), request.getRequestURI(), query != null ? "?" + query : "",
+            response.getStatus(), elapsed, response.bytesWritten, timings.summary());
+    }
+
+    private static class TimingResponse extends HttpServletResponseWrapper {
+        private final RequestTimings timings;
+        private boolean headerAdded;
+        private long bytesWritten;
+        private ServletOutputStream countingStream;
+
+        TimingResponse(HttpServletResponse response, RequestTimings timings) {
+            super(response);
+            this.timings = timings;
+        }
+
+        void addTimingHeader() {
+            if (!headerAdded && !isCommitted()) {
+                setHeader(HEADER, timings.serverTiming());
+            }
+            headerAdded = true;
+        }
+
+        @Override
+        public ServletOutputStream getOutputStream() throws IOException {
+            addTimingHeader();
+            if (countingStream == null) {
+                countingStream = new CountingStream(super.getOutputStream());
+            }
+            return countingStream;
+        }
+
+        @Override
+        public PrintWriter getWriter() throws IOException {
+            addTimingHeader();
+            return super.getWriter();
+        }
+
+        @Override
+        public void flushBuffer() throws IOException {
+            addTimingHeader();
+            super.flushBuffer();
+        }
+
+        @Override
+        public void sendError(int status, String message) throws IOException {
+            addTimingHeader();
+            super.sendError(status, message);
+        }
+
+        private class CountingStream extends ServletOutputStream {
+            private final ServletOutputStream delegate;
+
+            CountingStream(ServletOutputStream delegate) {
+                this.delegate = delegate;
+            }
+
+            @Override
+            public void write(int b) throws IOException {
+                delegate.write(b);
+                bytesWritten++;
+            }
+
+            @Override
+            public void write(byte[] b, int off, int len) throws IOException {
+                delegate.write(b, off, len);
+                bytesWritten += len;
+            }
+
+            @Override
+            public void flush() throws IOException {
+                delegate.flush();
+            }
+
+            @Override
+            public void close() throws IOException {
+                delegate.close();
+            }
+
+            @Override
+            public boolean isReady() {
+                return delegate.isReady();
+            }
+
+            @Override
+            public void setWriteListener(WriteListener listener) {
+                delegate.setWriteListener(listener);
+            }
+        }
+    }
+}
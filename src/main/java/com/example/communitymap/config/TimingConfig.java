@@ -0,0 +1,41 @@
+package com.example.communitymap.config;
+
+import com.example.communitymap.util.RequestTimings;
+import com.mongodb.event.CommandFailedEvent;
+import com.mongodb.event.CommandListener;
+import com.mongodb.event.CommandSucceededEvent;
+import org.springframework.boot.autoconfigure.mongo.MongoClientSettingsBuilderCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.task.TaskDecorator;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Hooks that feed {@link RequestTimings} from code we don't call directly
+ */
+@Configuration
+public class TimingConfig {
+
+    // The sync driver reports on the calling thread, so commands land in the current request's "mongo" span
+    @Bean
+    public MongoClientSettingsBuilderCustomizer mongoTimingCustomizer() {
+        return builder -> builder.addCommandListener(new CommandListener() {
+            @Override
+            public void commandSucceeded(CommandSucceededEvent event) {
+                RequestTimings.recordNanos("mongo", event.getElapsedTime(TimeUnit.NANOSECONDS));
+            }
+
+            @Override
+            public void commandFailed(CommandFailedEvent event) {
+                RequestTimings.recordNanos("mongo", event.getElapsedTime(TimeUnit.NANOSECONDS));
+            }
+        });
+    }
+
+    // Picked up by Boot's applicationTaskExecutor; the area lookups run on their own pool and wrap their tasks themselves
+    @Bean
+    public TaskDecorator requestTimingsTaskDecorator() {
+        return RequestTimings::wrap;
+    }
+}
@@ -0,0 +1,70 @@
+package com.example.communitymap.controller;
+
+import com.example.communitymap.exception.AccessDeniedException;
+import com.example.communitymap.exception.ValidationException;
+import com.example.communitymap.service.ClusterMembership;
+import com.example.communitymap.service.OverpassService;
+import com.example.communitymap.service.OverpassTileStore;
+import com.example.communitymap.util.Geohash;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Node-to-node endpoints. The backend port is published directly as well as behind nginx, so
+ * every request must carry the cluster secret in {@link ClusterMembership#SECRET_HEADER}.
+ */
+@RestController
+@RequestMapping("/internal/cluster")
+@RequiredArgsConstructor
+@Profile("!reactive")
+@Slf4j
+public class ClusterController {
+
+    private static final int MAX_TILES = 64;
+
+    private final ClusterMembership membership;
+    private final OverpassService overpassService;
+
+    @Value("${overpass.tile-precision:5}")
+    private int tilePrecision;
+
+    @GetMapping("/members")
+    public ResponseEntity<Map<String, Object>> getMembers(
+            @RequestHeader(value = ClusterMembership.SECRET_HEADER, required = false) String secret) {
+        authorize(secret);
+        return ResponseEntity.ok(Map.of("self", membership.self(), "members", membership.members()));
+    }
+
+    // Tiles forwarded by a peer because this node owns them on the ring
+    @GetMapping(value = "/tiles", produces = MediaType.APPLICATION_OCTET_STREAM_VALUE)
+    public ResponseEntity<byte[]> getOwnedTiles(
+            @RequestHeader(value = ClusterMembership.SECRET_HEADER, required = false) String secret,
+            @RequestParam List<String> tiles) {
+        log.info("GET /internal/cluster/tiles - tiles: {}", tiles);
+        authorize(secret);
+        if (tiles.isEmpty() || tiles.size() > MAX_TILES) {
+            throw new ValidationException("Between 1 and " + MAX_TILES + " tiles are required");
+        }
+        for (String tile : tiles) {
+            if (!Geohash.isValid(tile, tilePrecision)) {
+                throw new ValidationException("Invalid tile: " + tile);
+            }
+        }
+        return ResponseEntity.ok(OverpassTileStore.encodeTiles(overpassService.fetchOwnedTiles(new LinkedHashSet<>(tiles))));
+    }
+
+    private void authorize(String secret) {
+        if (!membership.isAuthorized(secret)) {
+            throw new AccessDeniedException("Missing or invalid cluster secret");
+        }
+    }
+}
@@ -4,6 +4,7 @@ import com.example.communitymap.model.Resource;
 import com.example.communitymap.service.ResourceService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.annotation.Profile;
 import org.springframework.data.mongodb.core.geo.GeoJsonPoint;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
@@ -16,6 +17,7 @@ import java.util.Map;
 @RequestMapping("/api/demo")
 @RequiredArgsConstructor
 @CrossOrigin(origins = {"http://localhost:3000", "http://127.0.0.1:3000"})
+@Profile("!reactive")
 @Slf4j
 public class DemoController {
     
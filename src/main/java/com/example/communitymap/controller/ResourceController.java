@@ -1,33 +1,66 @@
 package com.example.communitymap.controller;
 
+import com.example.communitymap.model.BatchSearchRequest;
+import com.example.communitymap.model.GeoJsonGeometry;
+import com.example.communitymap.model.IngestionResult;
+import com.example.communitymap.model.MarkerResult;
+import com.example.communitymap.model.NearestByType;
 import com.example.communitymap.model.Resource;
+import com.example.communitymap.service.AreaSearchService;
+import com.example.communitymap.service.BatchSearchService;
+import com.example.communitymap.service.EncodedResponseCache;
+import com.example.communitymap.service.EncodedResponseCache.EncodedResponse;
+import com.example.communitymap.service.OsmChangeService;
 import com.example.communitymap.service.ResourceService;
 import com.example.communitymap.service.OverpassService;
+import com.example.communitymap.service.PolygonSearchService;
+import com.example.communitymap.service.ResourceChangeHub;
+import com.example.communitymap.service.ResourceVersionTracker;
+import com.example.communitymap.service.SeedService;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.annotation.Profile;
 import org.springframework.data.domain.Page;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
+import java.io.InputStream;
+import java.time.Instant;
 import java.util.List;
+import java.util.function.Supplier;
 
 @RestController
 @RequestMapping("/api/resources")
 @RequiredArgsConstructor
 @CrossOrigin(origins = {"http://localhost:3000", "http://127.0.0.1:3000"})
+@Profile("!reactive")
 @Slf4j
 public class ResourceController {
     
     private final ResourceService resourceService;
     private final OverpassService overpassService;
+    private final OsmChangeService osmChangeService;
+    private final AreaSearchService areaSearchService;
+    private final BatchSearchService batchSearchService;
+    private final PolygonSearchService polygonSearchService;
+    private final SeedService seedService;
+    private final ResourceChangeHub resourceChangeHub;
+    private final ResourceVersionTracker versionTracker;
+    private final EncodedResponseCache encodedResponseCache;
     
     @GetMapping
-    public ResponseEntity<List<Resource>> getAllResources() {
+    public ResponseEntity<byte[]> getAllResources(
+            @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding) {
         log.info("GET /api/resources - Fetching all resources");
-        List<Resource> resources = resourceService.getAllResources();
-        return ResponseEntity.ok(resources);
+        return encodedResponse("all", versionTracker.collectionVersion(), acceptEncoding,
+            resourceService::getAllResources);
     }
     
     @GetMapping("/paginated")
@@ -68,67 +101,121 @@ public class ResourceController {
     }
     
     @GetMapping("/search/nearby")
-    public ResponseEntity<List<Resource>> getNearbyResources(
+    public ResponseEntity<byte[]> getNearbyResources(
             @RequestParam double lat,
             @RequestParam double lon,
-            @RequestParam(defaultValue = "1.0") double dist) {
+            @RequestParam(defaultValue = "1.0") double dist,
+            @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding) {
         log.info("GET /api/resources/search/nearby - lat: {}, lon: {}, dist: {}", lat, lon, dist);
-        List<Resource> resources = resourceService.findResourcesNearby(lon, lat, dist);
-        return ResponseEntity.ok(resources);
+        // Validated before versioning, which enumerates the cells the area covers
+        ResourceService.validateArea(lon, lat, dist * ResourceService.KM_PER_MILE);
+        return encodedResponse("nearby:" + lat + ":" + lon + ":" + dist,
+            versionTracker.areaVersion(lat, lon, dist * ResourceService.KM_PER_MILE), acceptEncoding,
+            () -> resourceService.findResourcesNearby(lon, lat, dist));
+    }
+    
+    @PostMapping(value = "/search/batch", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<ResponseBodyEmitter> batchNearbySearch(@Valid @RequestBody BatchSearchRequest request) {
+        log.info("POST /api/resources/search/batch - {} points", request.getPoints().size());
+        ResponseBodyEmitter body = batchSearchService.stream(request);
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_NDJSON).body(body);
+    }
+    
+    @PostMapping("/search/polygon")
+    public ResponseEntity<List<Resource>> searchWithinPolygon(
+            @Valid @RequestBody GeoJsonGeometry geometry,
+            @RequestParam(required = false) String type,
+            @RequestParam(defaultValue = "1000") int limit,
+            @RequestParam(defaultValue = "auto") String mode) {
+        log.info("POST /api/resources/search/polygon - {}, type: {}, limit: {}, mode: {}", geometry.getType(), type, limit, mode);
+        return ResponseEntity.ok(polygonSearchService.findWithin(geometry, type, limit, mode));
+    }
+    
+    @GetMapping(value = "/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public ResponseEntity<SseEmitter> streamChanges(
+            @RequestParam double minLat,
+            @RequestParam double minLon,
+            @RequestParam double maxLat,
+            @RequestParam double maxLon) {
+        log.info("GET /api/resources/stream - bbox: [{}, {}] - [{}, {}]", minLat, minLon, maxLat, maxLon);
+        SseEmitter emitter = resourceChangeHub.subscribe(minLat, minLon, maxLat, maxLon);
+        // Stop nginx from buffering the event stream
+        return ResponseEntity.ok().header("X-Accel-Buffering", "no").body(emitter);
+    }
+    
+    @GetMapping("/nearest")
+    public ResponseEntity<List<NearestByType>> getNearestPerType(
+            @RequestParam double lat,
+            @RequestParam double lon,
+            @RequestParam(defaultValue = "3") int k,
+            @RequestParam(required = false) List<String> types,
+            @RequestParam(defaultValue = "10.0") double dist) {
+        log.info("GET /api/resources/nearest - lat: {}, lon: {}, k: {}, types: {}, dist: {}", lat, lon, k, types, dist);
+        List<NearestByType> nearest = resourceService.findNearestPerType(lon, lat, dist, types, k);
+        return ResponseEntity.ok(nearest);
+    }
+    
+    @GetMapping("/area")
+    public ResponseEntity<byte[]> getAreaResources(
+            @RequestParam double lat,
+            @RequestParam double lon,
+            @RequestParam(defaultValue = "5.0") double radiusKm,
+            @RequestParam(defaultValue = "50") int limit,
+            @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding) {
+        log.info("GET /api/resources/area - lat: {}, lon: {}, radius: {}km, limit: {}", lat, lon, radiusKm, limit);
+        ResourceService.validateArea(lon, lat, radiusKm);
+        return encodedResponse("area:" + lat + ":" + lon + ":" + radiusKm + ":" + limit,
+            versionTracker.areaVersion(lat, lon, radiusKm), acceptEncoding,
+            () -> areaSearchService.findResourcesInArea(lat, lon, radiusKm, limit));
+    }
+    
+    @GetMapping("/markers")
+    public ResponseEntity<byte[]> getMarkers(
+            @RequestParam double lat,
+            @RequestParam double lon,
+            @RequestParam(defaultValue = "5.0") double radiusKm,
+            @RequestParam(defaultValue = "1000") int limit,
+            @RequestParam(defaultValue = "objects") String format,
+            @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding) {
+        log.info("GET /api/resources/markers - lat: {}, lon: {}, radius: {}km, limit: {}, format: {}", lat, lon, radiusKm, limit, format);
+        ResourceService.validateArea(lon, lat, radiusKm);
+        boolean arrays = "arrays".equalsIgnoreCase(format);
+        return encodedResponse("markers:" + lat + ":" + lon + ":" + radiusKm + ":" + limit + ":" + arrays,
+            versionTracker.areaVersion(lat, lon, radiusKm), acceptEncoding,
+            () -> {
+                MarkerResult result = areaSearchService.findMarkersInArea(lat, lon, radiusKm, limit);
+                if (arrays) {
+                    result.setArrays(ResourceService.toMarkerArrays(result.getMarkers()));
+                    result.setMarkers(null);
+                }
+                return result;
+            });
+    }
+    
+    @GetMapping("/osm")
+    public ResponseEntity<Resource> getOsmResource(
+            @RequestParam String osmId,
+            @RequestParam double lat,
+            @RequestParam double lon,
+            @RequestParam(defaultValue = "5.0") double radiusKm) {
+        log.info("GET /api/resources/osm - osmId: {}, lat: {}, lon: {}, radius: {}km", osmId, lat, lon, radiusKm);
+        return ResponseEntity.ok(areaSearchService.findOsmResource(osmId, lat, lon, radiusKm));
     }
     
     @GetMapping("/fetch/overpass")
-    public ResponseEntity<List<Resource>> fetchOverpassResources(
+    public ResponseEntity<byte[]> fetchOverpassResources(
             @RequestParam double lat,
             @RequestParam double lon,
             @RequestParam(defaultValue = "5.0") double radiusKm,
-            @RequestParam(required = false) String type) {
+            @RequestParam(required = false) String type,
+            @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding) {
         log.info("GET /api/resources/fetch/overpass - lat: {}, lon: {}, radius: {}km, type: {}", lat, lon, radiusKm, type);
         
+        ResourceService.validateArea(lon, lat, radiusKm);
         // Use the optimized combined method for better performance
-        List<Resource> resources = overpassService.fetchAllResources(lat, lon, radiusKm);
-        
-        // Filter by type if specified
-        if (type != null && !type.equalsIgnoreCase("all")) {
-            String filterType = type.toUpperCase();
-            switch (filterType) {
-                case "LIBRARY":
-                    resources = resources.stream()
-                        .filter(r -> "LIBRARY".equals(r.getType()))
-                        .collect(java.util.stream.Collectors.toList());
-                    break;
-                case "HEALTHCARE":
-                case "CLINIC":
-                    resources = resources.stream()
-                        .filter(r -> "CLINIC".equals(r.getType()))
-                        .collect(java.util.stream.Collectors.toList());
-                    break;
-                case "HOSPITAL":
-                    resources = resources.stream()
-                        .filter(r -> "HOSPITAL".equals(r.getType()))
-                        .collect(java.util.stream.Collectors.toList());
-                    break;
-                case "PHARMACY":
-                    resources = resources.stream()
-                        .filter(r -> "PHARMACY".equals(r.getType()))
-                        .collect(java.util.stream.Collectors.toList());
-                    break;
-                case "FOOD":
-                case "FOOD_BANK":
-                    resources = resources.stream()
-                        .filter(r -> "FOOD_BANK".equals(r.getType()))
-                        .collect(java.util.stream.Collectors.toList());
-                    break;
-                case "SOCIAL":
-                case "SOCIAL_FACILITY":
-                    resources = resources.stream()
-                        .filter(r -> "SOCIAL_FACILITY".equals(r.getType()))
-                        .collect(java.util.stream.Collectors.toList());
-                    break;
-            }
-        }
-        
-        return ResponseEntity.ok(resources);
+        return encodedResponse("overpass:" + lat + ":" + lon + ":" + radiusKm + ":" + type,
+            versionTracker.areaVersion(lat, lon, Math.min(radiusKm, 5.0)), acceptEncoding,
+            () -> filterByType(overpassService.fetchAllResources(lat, lon, radiusKm), type));
     }
     
     @PostMapping("/fetch-and-save")
@@ -139,60 +226,94 @@ public class ResourceController {
             @RequestParam(required = false) String type) {
         log.info("POST /api/resources/fetch-and-save - lat: {}, lon: {}, radius: {}km, type: {}", lat, lon, radiusKm, type);
         
+        ResourceService.validateArea(lon, lat, radiusKm);
         // Use the optimized combined method for better performance
         List<Resource> fetchedResources = overpassService.fetchAllResources(lat, lon, radiusKm);
         
         // Filter by type if specified
-        if (type != null && !type.equalsIgnoreCase("all")) {
-            String filterType = type.toUpperCase();
-            switch (filterType) {
-                case "LIBRARY":
-                    fetchedResources = fetchedResources.stream()
-                        .filter(r -> "LIBRARY".equals(r.getType()))
-                        .collect(java.util.stream.Collectors.toList());
-                    break;
-                case "HEALTHCARE":
-                case "CLINIC":
-                    fetchedResources = fetchedResources.stream()
-                        .filter(r -> "CLINIC".equals(r.getType()))
-                        .collect(java.util.stream.Collectors.toList());
-                    break;
-                case "HOSPITAL":
-                    fetchedResources = fetchedResources.stream()
-                        .filter(r -> "HOSPITAL".equals(r.getType()))
-                        .collect(java.util.stream.Collectors.toList());
-                    break;
-                case "PHARMACY":
-                    fetchedResources = fetchedResources.stream()
-                        .filter(r -> "PHARMACY".equals(r.getType()))
-                        .collect(java.util.stream.Collectors.toList());
-                    break;
-                case "FOOD":
-                case "FOOD_BANK":
-                    fetchedResources = fetchedResources.stream()
-                        .filter(r -> "FOOD_BANK".equals(r.getType()))
-                        .collect(java.util.stream.Collectors.toList());
-                    break;
-                case "SOCIAL":
-                case "SOCIAL_FACILITY":
-                    fetchedResources = fetchedResources.stream()
-                        .filter(r -> "SOCIAL_FACILITY".equals(r.getType()))
-                        .collect(java.util.stream.Collectors.toList());
-                    break;
-            }
-        }
+        fetchedResources = filterByType(fetchedResources, type);
         
-        // Save fetched resources to database
-        List<Resource> savedResources = new java.util.ArrayList<>();
-        for (Resource resource : fetchedResources) {
-            try {
-                Resource savedResource = resourceService.addResource(resource);
-                savedResources.add(savedResource);
-            } catch (Exception e) {
-                log.warn("Failed to save resource {}: {}", resource.getName(), e.getMessage());
-            }
-        }
+        // Save fetched resources to database, updating previously saved elements by OSM id
+        List<Resource> savedResources = resourceService.upsertOsmResources(fetchedResources);
         
         return ResponseEntity.status(HttpStatus.CREATED).body(savedResources);
     }
+    
+    @PostMapping(value = "/ingest/osm-change", consumes = {MediaType.APPLICATION_XML_VALUE, MediaType.TEXT_XML_VALUE, "application/osmchange+xml"})
+    public ResponseEntity<IngestionResult> ingestOsmChange(InputStream body) {
+        log.info("POST /api/resources/ingest/osm-change - Applying osmChange document");
+        IngestionResult result = osmChangeService.applyChangeFile(body);
+        return ResponseEntity.ok(result);
+    }
+    
+    @PostMapping(value = "/ingest/seed", consumes = {MediaType.APPLICATION_JSON_VALUE, "application/geo+json"})
+    public ResponseEntity<IngestionResult> ingestSeed(InputStream body) {
+        log.info("POST /api/resources/ingest/seed - Loading seed document");
+        IngestionResult result = seedService.load(body);
+        return ResponseEntity.ok(result);
+    }
+    
+    @PostMapping("/ingest/refresh")
+    public ResponseEntity<IngestionResult> refreshArea(
+            @RequestParam double lat,
+            @RequestParam double lon,
+            @RequestParam(defaultValue = "5.0") double radiusKm,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Instant since) {
+        log.info("POST /api/resources/ingest/refresh - lat: {}, lon: {}, radius: {}km, since: {}", lat, lon, radiusKm, since);
+        ResourceService.validateArea(lon, lat, radiusKm);
+        IngestionResult result = osmChangeService.refreshArea(lat, lon, radiusKm, since);
+        return ResponseEntity.ok(result);
+    }
+    
+    private List<Resource> filterByType(List<Resource> resources, String type) {
+        if (type == null || type.equalsIgnoreCase("all")) {
+            return resources;
+        }
+        String filterType = type.toUpperCase();
+        switch (filterType) {
+            case "LIBRARY":
+                return filterByResourceType(resources, "LIBRARY");
+            case "HEALTHCARE":
+            case "CLINIC":
+                return filterByResourceType(resources, "CLINIC");
+            case "HOSPITAL":
+                return filterByResourceType(resources, "HOSPITAL");
+            case "PHARMACY":
+                return filterByResourceType(resources, "PHARMACY");
+            case "FOOD":
+            case "FOOD_BANK":
+                return filterByResourceType(resources, "FOOD_BANK");
+            case "SOCIAL":
+            case "SOCIAL_FACILITY":
+                return filterByResourceType(resources, "SOCIAL_FACILITY");
+            default:
+                return resources;
+        }
+    }
+    
+    private List<Resource> filterByResourceType(List<Resource> resources, String resourceType) {
+        return resources.stream()
+            .filter(r -> resourceType.equals(r.getType()))
+            .collect(java.util.stream.Collectors.toList());
+    }
+    
+    /**
+     * Serve a JSON body from the pre-encoded response cache. The ETag is a hash of the
+     * serialized body, so Spring answers matching If-None-Match requests with 304.
+     */
+    private ResponseEntity<byte[]> encodedResponse(String key, long version, String acceptEncoding, Supplier<Object> body) {
+        EncodedResponse encoded = encodedResponseCache.get(key, version, body);
+        ResponseEntity.BodyBuilder builder = ResponseEntity.ok()
+            .contentType(MediaType.APPLICATION_JSON)
+            .lastModified(encoded.getCreatedAt())
+            .varyBy(HttpHeaders.ACCEPT_ENCODING);
+        
+        if (encoded.getGzip() != null && acceptEncoding != null && acceptEncoding.contains("gzip")) {
+            // Already compressed; Tomcat leaves responses with a Content-Encoding alone
+            return builder.eTag(encoded.getGzipEtag())
+                .header(HttpHeaders.CONTENT_ENCODING, "gzip")
+                .body(encoded.getGzip());
+        }
+        return builder.eTag(encoded.getEtag()).body(encoded.getJson());
+    }
 }
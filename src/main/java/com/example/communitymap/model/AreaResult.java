@@ -0,0 +1,26 @@
+package com.example.communitymap.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * Deduplicated database and Overpass resources for one map area, capped at limit.
+ * Dense areas are answered with clusters or a smaller radius instead; see strategy.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class AreaResult {
+    private List<Resource> resources;
+    // Distinct resources found before applying the cap; the estimate when clustered
+    private int total;
+    private int limit;
+    private boolean overflow;
+    private AreaStrategy strategy;
+    // Radius actually searched, smaller than requested for REDUCED_AREA
+    private double radiusKm;
+    private List<ResourceCluster> clusters;
+}
@@ -0,0 +1,13 @@
+package com.example.communitymap.model;
+
+/**
+ * How an area request was answered, chosen from the estimated result count
+ */
+public enum AreaStrategy {
+    // Every resource in the area fits under the limit
+    POINTS,
+    // Slightly too dense: points for a smaller area around the same center
+    REDUCED_AREA,
+    // Far too dense: per-cell counts instead of points
+    CLUSTERS
+}
@@ -0,0 +1,37 @@
+package com.example.communitymap.model;
+
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Size;
+import lombok.Data;
+
+import java.util.List;
+
+@Data
+public class BatchSearchRequest {
+    
+    @NotEmpty(message = "At least one point is required")
+    @Size(max = 1000, message = "A batch may contain at most 1000 points")
+    @Valid
+    private List<Point> points;
+    
+    @Data
+    public static class Point {
+        // Caller's reference for the point (e.g. a client id), echoed in the result
+        private String id;
+        
+        @NotNull(message = "Latitude is required")
+        private Double lat;
+        
+        @NotNull(message = "Longitude is required")
+        private Double lon;
+        
+        // Miles, like /search/nearby
+        private Double radius;
+        
+        private String type;
+        
+        private Integer limit;
+    }
+}
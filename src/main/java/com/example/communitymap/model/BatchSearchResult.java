@@ -0,0 +1,22 @@
+package com.example.communitymap.model;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * Result for one point of a batch search; error is set instead of resources when the point failed
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class BatchSearchResult {
+    private int index;
+    private String id;
+    private List<Resource> resources;
+    private String error;
+}
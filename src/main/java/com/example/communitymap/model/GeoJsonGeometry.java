@@ -0,0 +1,20 @@
+package com.example.communitymap.model;
+
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotNull;
+import lombok.Data;
+
+import java.util.List;
+
+/**
+ * A GeoJSON geometry as posted by clients; nesting of coordinates depends on the type
+ */
+@Data
+public class GeoJsonGeometry {
+    
+    @NotBlank(message = "Geometry type is required")
+    private String type;
+    
+    @NotNull(message = "Geometry coordinates are required")
+    private List<Object> coordinates;
+}
@@ -0,0 +1,17 @@
+package com.example.communitymap.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Summary of an incremental OSM refresh or a seed load
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class IngestionResult {
+    private int upserted;
+    private int deleted;
+    private int skipped;
+}
@@ -0,0 +1,21 @@
+package com.example.communitymap.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Markers as parallel arrays (index i of each array is one marker), which avoids
+ * repeating field names per marker in the JSON
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class MarkerArrays {
+    // Null for Overpass results that are not stored
+    private String[] ids;
+    private String[] osmIds;
+    private String[] types;
+    private double[] lats;
+    private double[] lons;
+}
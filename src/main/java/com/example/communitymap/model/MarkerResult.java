@@ -0,0 +1,29 @@
+package com.example.communitymap.model;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * Markers for one map area, planned like AreaResult: dense areas come back as a smaller radius
+ * or as clusters. Exactly one of markers and arrays is set, depending on the requested format.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class MarkerResult {
+    private List<ResourceMarker> markers;
+    private MarkerArrays arrays;
+    // Distinct markers found before applying the cap; the estimate when clustered
+    private int total;
+    private int limit;
+    private boolean overflow;
+    private AreaStrategy strategy;
+    // Radius actually searched, smaller than requested for REDUCED_AREA
+    private double radiusKm;
+    private List<ResourceCluster> clusters;
+}
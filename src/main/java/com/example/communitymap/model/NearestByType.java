@@ -0,0 +1,18 @@
+package com.example.communitymap.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * The nearest resources of one type, closest first
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class NearestByType {
+    private String type;
+    private List<ResourceDistance> resources;
+}
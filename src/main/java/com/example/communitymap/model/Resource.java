@@ -5,15 +5,21 @@ import org.springframework.data.annotation.Id;
 import org.springframework.data.mongodb.core.geo.GeoJsonPoint;
 import org.springframework.data.mongodb.core.index.GeoSpatialIndexType;
 import org.springframework.data.mongodb.core.index.GeoSpatialIndexed;
+import org.springframework.data.mongodb.core.index.Indexed;
 import org.springframework.data.mongodb.core.mapping.Document;
 
 import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.NotNull;
 import jakarta.validation.constraints.Size;
 
+import java.io.Serializable;
+
 @Data
 @Document(collection = "resources")
-public class Resource {
+public class Resource implements Serializable {
+    // Cached in Redis with JDK serialization
+    private static final long serialVersionUID = 1L;
+    
     @Id
     private String id;
     
@@ -32,4 +38,8 @@ public class Resource {
     @NotNull(message = "Location coordinates are required")
     @GeoSpatialIndexed(type = GeoSpatialIndexType.GEO_2DSPHERE)
     private GeoJsonPoint location;
+    
+    // OpenStreetMap element key (e.g. "node/123"); null for manually added resources
+    @Indexed(unique = true, sparse = true)
+    private String osmId;
 }
\ No newline at end of file
@@ -0,0 +1,32 @@
+package com.example.communitymap.model;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.mongodb.core.geo.GeoJsonPoint;
+
+/**
+ * A write to the resources collection, as pushed to map subscribers.
+ * Deletes carry the removed resource when it is known, otherwise only the id;
+ * updates that moved a resource also carry where it was before.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class ResourceChangeEvent {
+    
+    public static final String INSERT = "insert";
+    public static final String UPDATE = "update";
+    public static final String DELETE = "delete";
+    
+    private String operation;
+    private String id;
+    private Resource resource;
+    private GeoJsonPoint previousLocation;
+    
+    public ResourceChangeEvent(String operation, String id, Resource resource) {
+        this(operation, id, resource, null);
+    }
+}
@@ -0,0 +1,21 @@
+package com.example.communitymap.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.Map;
+
+/**
+ * Resources aggregated into one grid cell, placed at their centroid
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ResourceCluster {
+    private double lat;
+    private double lon;
+    private int count;
+    // Count per resource type
+    private Map<String, Integer> types;
+}
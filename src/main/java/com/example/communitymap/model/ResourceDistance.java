@@ -0,0 +1,16 @@
+package com.example.communitymap.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * A resource with its distance in meters from the query point
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ResourceDistance {
+    private Resource resource;
+    private double distance;
+}
@@ -0,0 +1,22 @@
+package com.example.communitymap.model;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * What a map needs to place a resource; details come from /api/resources/{id} on click, or from
+ * /api/resources/osm for Overpass results that are not stored and so have only an osmId
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class ResourceMarker {
+    private String id;
+    private String osmId;
+    private String type;
+    private double lat;
+    private double lon;
+}
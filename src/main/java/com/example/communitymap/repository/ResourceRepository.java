@@ -8,10 +8,11 @@ import org.springframework.data.mongodb.repository.MongoRepository;
 import org.springframework.data.mongodb.repository.Query;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 
 @Repository
-public interface ResourceRepository extends MongoRepository<Resource, String> {
+public interface ResourceRepository extends MongoRepository<Resource, String>, ResourceRepositoryCustom {
     
     // Find resources within a certain distance of a point
     List<Resource> findByLocationNear(Point point, Distance distance);
@@ -24,7 +25,11 @@ public interface ResourceRepository extends MongoRepository<Resource, String> {
     @Query("{ 'type': ?0, 'location': { $near: { $geometry: { type: 'Point', coordinates: [?2, ?1] }, $maxDistance: ?3 } } }")
     List<Resource> findByTypeAndLocationNear(String type, double latitude, double longitude, double maxDistance);
     
-    // Count resources in area for performance monitoring
-    @Query(value = "{ 'location': { $near: { $geometry: { type: 'Point', coordinates: [?1, ?0] }, $maxDistance: ?2 } } }", count = true)
-    long countNearbyResources(double latitude, double longitude, double maxDistance);
+    @Query("{ 'type': ?0, 'location': { $near: { $geometry: { type: 'Point', coordinates: [?2, ?1] }, $maxDistance: ?3 } } }")
+    List<Resource> findByTypeAndLocationNear(String type, double latitude, double longitude, double maxDistance, Pageable pageable);
+    
+    // Lookups by OpenStreetMap key for incremental change ingestion
+    List<Resource> findByOsmIdIn(Collection<String> osmIds);
+    
+    List<Resource> deleteByOsmIdIn(Collection<String> osmIds);
 }
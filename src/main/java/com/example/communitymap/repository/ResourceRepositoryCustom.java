@@ -0,0 +1,35 @@
+package com.example.communitymap.repository;
+
+import com.example.communitymap.model.NearestByType;
+import com.example.communitymap.model.Resource;
+import com.example.communitymap.model.ResourceCluster;
+import com.example.communitymap.model.ResourceMarker;
+import org.bson.Document;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * Queries that need the aggregation framework, implemented in {@link ResourceRepositoryImpl}
+ */
+public interface ResourceRepositoryCustom {
+    
+    // Top k per type within maxDistance (meters), closest first, in a single $geoNear + $group pipeline
+    List<NearestByType> findNearestPerType(double latitude, double longitude, double maxDistance, Collection<String> types, int k);
+    
+    // Count resources within maxDistance (meters); $near cannot be counted, so this uses $geoWithin/$centerSphere
+    long countNearbyResources(double latitude, double longitude, double maxDistance);
+    
+    // Resources within maxDistance (meters) grouped into a lat/lon grid of cellDegrees, one cluster per non-empty cell
+    List<ResourceCluster> clusterNearbyResources(double latitude, double longitude, double maxDistance, double cellDegrees);
+    
+    // Closest first within maxDistance (meters), returning only _id, osmId, type and location
+    List<ResourceMarker> findMarkersNear(double latitude, double longitude, double maxDistance, int limit);
+    
+    // $geoWithin a GeoJSON (multi)polygon geometry document, optionally of one type
+    List<Resource> findWithin(Document geometry, String type, int limit);
+    
+    // Same filter as a cursor, for callers that filter further and stop early; close the stream
+    Stream<Resource> streamWithin(Document geometry, String type);
+}
@@ -0,0 +1,171 @@
+package com.example.communitymap.repository;
+
+import com.example.communitymap.model.NearestByType;
+import com.example.communitymap.model.Resource;
+import com.example.communitymap.model.ResourceCluster;
+import com.example.communitymap.model.ResourceMarker;
+import lombok.RequiredArgsConstructor;
+import org.bson.Document;
+import org.springframework.data.geo.Circle;
+import org.springframework.data.geo.Point;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.aggregation.AggregationOperation;
+import org.springframework.data.mongodb.core.geo.GeoJsonPoint;
+import org.springframework.data.mongodb.core.query.BasicQuery;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.NearQuery;
+import org.springframework.data.mongodb.core.query.Query;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+@RequiredArgsConstructor
+public class ResourceRepositoryImpl implements ResourceRepositoryCustom {
+    
+    // Mean Earth radius used by MongoDB for spherical geometry
+    private static final double EARTH_RADIUS_METERS = 6378100.0;
+    
+    private final MongoTemplate mongoTemplate;
+    
+    @Override
+    public List<NearestByType> findNearestPerType(double latitude, double longitude, double maxDistance, Collection<String> types, int k) {
+        // GeoJSON point: distances are in meters
+        NearQuery nearQuery = NearQuery.near(new GeoJsonPoint(longitude, latitude))
+            .spherical(true)
+            .maxDistance(maxDistance);
+        if (!types.isEmpty()) {
+            nearQuery.query(Query.query(Criteria.where("type").in(types)));
+        }
+        
+        // $topN keeps only the k closest per type while grouping, instead of collecting every
+        // match into one array per type and slicing it afterwards (MongoDB 5.2+)
+        AggregationOperation groupByType = context -> new Document("$group", new Document("_id", "$type")
+            .append("resources", new Document("$topN", new Document("n", k)
+                .append("sortBy", new Document("distance", 1))
+                .append("output", new Document("resource", "$$ROOT").append("distance", "$distance")))));
+        AggregationOperation takeTopK = context -> new Document("$project", new Document("_id", 0)
+            .append("type", "$_id")
+            .append("resources", 1));
+        
+        Aggregation aggregation = Aggregation.newAggregation(
+            Aggregation.geoNear(nearQuery, "distance").useIndex("location"),
+            groupByType,
+            takeTopK,
+            Aggregation.sort(org.springframework.data.domain.Sort.by("type"))
+        );
+        
+        return mongoTemplate.aggregate(aggregation, Resource.class, NearestByType.class).getMappedResults();
+    }
+    
+    @Override
+    public long countNearbyResources(double latitude, double longitude, double maxDistance) {
+        return mongoTemplate.count(Query.query(withinDistance(latitude, longitude, maxDistance)), Resource.class);
+    }
+    
+    @Override
+    public List<ResourceCluster> clusterNearbyResources(double latitude, double longitude, double maxDistance, double cellDegrees) {
+        Document lon = new Document("$arrayElemAt", List.of("$location.coordinates", 0));
+        Document lat = new Document("$arrayElemAt", List.of("$location.coordinates", 1));
+        
+        // Group by (cell, type) on the server; only one small document per group comes back
+        AggregationOperation toCell = context -> new Document("$project", new Document("type", 1)
+            .append("lon", lon)
+            .append("lat", lat)
+            .append("cx", new Document("$floor", new Document("$divide", List.of(lon, cellDegrees))))
+            .append("cy", new Document("$floor", new Document("$divide", List.of(lat, cellDegrees)))));
+        AggregationOperation groupByCellAndType = context -> new Document("$group", new Document("_id",
+                new Document("cx", "$cx").append("cy", "$cy").append("type", "$type"))
+            .append("count", new Document("$sum", 1))
+            .append("lonSum", new Document("$sum", "$lon"))
+            .append("latSum", new Document("$sum", "$lat")));
+        
+        Aggregation aggregation = Aggregation.newAggregation(
+            Aggregation.match(withinDistance(latitude, longitude, maxDistance)),
+            toCell,
+            groupByCellAndType
+        );
+        
+        Map<String, CellAccumulator> cells = new LinkedHashMap<>();
+        for (Document group : mongoTemplate.aggregate(aggregation, Resource.class, Document.class).getMappedResults()) {
+            Document id = group.get("_id", Document.class);
+            String cellKey = id.get("cx") + ":" + id.get("cy");
+            int count = ((Number) group.get("count")).intValue();
+            cells.computeIfAbsent(cellKey, key -> new CellAccumulator())
+                .add(id.getString("type"), count,
+                    ((Number) group.get("latSum")).doubleValue(), ((Number) group.get("lonSum")).doubleValue());
+        }
+        
+        List<ResourceCluster> clusters = new ArrayList<>(cells.size());
+        cells.values().forEach(cell -> clusters.add(cell.toCluster()));
+        return clusters;
+    }
+    
+    @Override
+    public List<ResourceMarker> findMarkersNear(double latitude, double longitude, double maxDistance, int limit) {
+        Query query = Query.query(Criteria.where("location").nearSphere(new GeoJsonPoint(longitude, latitude)).maxDistance(maxDistance))
+            .limit(limit);
+        query.fields().include("osmId").include("type").include("location");
+        
+        // The projection only trims what the server sends: MongoDB still reads whole documents to
+        // apply it. Raw documents skip entity mapping, so name and address are never decoded here.
+        List<Document> documents = mongoTemplate.find(query, Document.class, mongoTemplate.getCollectionName(Resource.class));
+        List<ResourceMarker> markers = new ArrayList<>(documents.size());
+        for (Document document : documents) {
+            Document location = document.get("location", Document.class);
+            List<?> coordinates = location != null ? location.getList("coordinates", Object.class) : null;
+            if (coordinates == null || coordinates.size() < 2) {
+                continue;
+            }
+            markers.add(new ResourceMarker(String.valueOf(document.get("_id")), document.getString("osmId"), document.getString("type"),
+                ((Number) coordinates.get(1)).doubleValue(), ((Number) coordinates.get(0)).doubleValue()));
+        }
+        return markers;
+    }
+    
+    @Override
+    public List<Resource> findWithin(Document geometry, String type, int limit) {
+        return mongoTemplate.find(withinQuery(geometry, type).limit(limit), Resource.class);
+    }
+    
+    @Override
+    public Stream<Resource> streamWithin(Document geometry, String type) {
+        return mongoTemplate.stream(withinQuery(geometry, type), Resource.class);
+    }
+    
+    private static Query withinQuery(Document geometry, String type) {
+        // Criteria.within only takes Shapes, which have no multipolygon; pass the GeoJSON through as is
+        Document filter = new Document("location", new Document("$geoWithin", new Document("$geometry", geometry)));
+        if (type != null) {
+            filter.append("type", type);
+        }
+        return new BasicQuery(filter);
+    }
+    
+    private static Criteria withinDistance(double latitude, double longitude, double maxDistance) {
+        // $centerSphere takes the radius in radians
+        return Criteria.where("location").withinSphere(new Circle(new Point(longitude, latitude), maxDistance / EARTH_RADIUS_METERS));
+    }
+    
+    private static class CellAccumulator {
+        private final Map<String, Integer> types = new LinkedHashMap<>();
+        private int count;
+        private double latSum;
+        private double lonSum;
+        
+        void add(String type, int typeCount, double typeLatSum, double typeLonSum) {
+            types.merge(type != null ? type : "UNKNOWN", typeCount, Integer::sum);
+            count += typeCount;
+            latSum += typeLatSum;
+            lonSum += typeLonSum;
+        }
+        
+        ResourceCluster toCluster() {
+            return new ResourceCluster(latSum / count, lonSum / count, count, types);
+        }
+    }
+}
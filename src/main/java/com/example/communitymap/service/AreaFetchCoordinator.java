@@ -0,0 +1,356 @@
+package com.example.communitymap.service;
+
+import com.example.communitymap.model.Resource;
+import com.example.communitymap.util.RequestTimings;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.client.JdkClientHttpRequestFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.web.client.HttpStatusCodeException;
+import org.springframework.web.client.ResourceAccessException;
+import org.springframework.web.client.RestTemplate;
+
+import java.net.http.HttpClient;
+import java.net.http.HttpConnectTimeoutException;
+import java.net.http.HttpTimeoutException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Function;
+
+/**
+ * Makes sure each Overpass tile (a geohash cell, see {@link OverpassService}) is fetched
+ * upstream once per cluster. A node asks the owners of the tiles on the {@link ClusterMembership}
+ * ring for them; the owner, or any node when the owner is unreachable, takes a short-lived Redis
+ * lock per tile before going upstream, and other nodes that reach the same tile wait for its
+ * "fetched" notification and read the shared allResources cache instead. The tiles a node
+ * fetches itself go upstream together in one query.
+ */
+@Service
+@Slf4j
+public class AreaFetchCoordinator implements MessageListener {
+
+    public static final String CHANNEL = "communitymap:area-fetched";
+    private static final String LOCK_PREFIX = "area-fetch-lock:";
+    private static final String CACHE_NAME = "allResources";
+    // Delete the lock only if this node still holds it; it may have expired and been taken over
+    private static final RedisScript<Long> RELEASE_LOCK = new DefaultRedisScript<>(
+        "if redis.call('get', KEYS[1]) == ARGV[1] then return redis.call('del', KEYS[1]) else return 0 end", Long.class);
+
+    private final ClusterMembership membership;
+    private final CacheManager cacheManager;
+    private final StringRedisTemplate stringRedisTemplate;
+    private final RedisMessageListenerContainer listenerContainer;
+    private final RestTemplate peerClient;
+    private final boolean enabled;
+    private final Duration lockTtl;
+    // Caps the request threads parked on peers; beyond it tiles are fetched here
+    private final Semaphore forwardPermits;
+
+    // Tiles being fetched on this node; concurrent requests share the result
+    private final Map<String, CompletableFuture<List<Resource>>> inFlight = new ConcurrentHashMap<>();
+    // Tiles this node is waiting on another node for, completed by the fetched notification
+    private final Map<String, CompletableFuture<Void>> waiters = new ConcurrentHashMap<>();
+
+    public AreaFetchCoordinator(ClusterMembership membership,
+                                CacheManager cacheManager,
+                                StringRedisTemplate stringRedisTemplate,
+                                RedisMessageListenerContainer listenerContainer,
+                                @Value("${cluster.enabled:false}") boolean enabled,
+                                @Value("${cluster.fetch-lock-ttl:PT60S}") Duration lockTtl,
+                                @Value("${cluster.forward-timeout:PT10S}") Duration forwardTimeout,
+                                @Value("${cluster.max-concurrent-forwards:32}") int maxConcurrentForwards) {
+        this.membership = membership;
+        this.cacheManager = cacheManager;
+        this.stringRedisTemplate = stringRedisTemplate;
+        this.listenerContainer = listenerContainer;
+        this.enabled = enabled;
+        this.lockTtl = lockTtl;
+        this.forwardPermits = new Semaphore(maxConcurrentForwards);
+        HttpClient httpClient = HttpClient.newBuilder()
+                .connectTimeout(Duration.ofSeconds(2))
+                .build();
+        JdkClientHttpRequestFactory requestFactory = new JdkClientHttpRequestFactory(httpClient);
+        requestFactory.setReadTimeout(forwardTimeout);
+        this.peerClient = new RestTemplate(requestFactory);
+    }
+
+    // Subscribed once the context is up so an unavailable Redis does not block startup
+    @EventListener(ApplicationReadyEvent.class)
+    void subscribe() {
+        if (!enabled) {
+            return;
+        }
+        try {
+            listenerContainer.addMessageListener(this, new ChannelTopic(CHANNEL));
+        } catch (Exception e) {
+            log.warn("Redis subscription to {} not ready, the listener container keeps retrying: {}", CHANNEL, e.getMessage());
+        }
+    }
+
+    /**
+     * The resources of each tile, from the tiles' owners, or from upstream for the tiles this node owns
+     */
+    public Map<String, List<Resource>> fetch(Collection<String> tiles, Function<Collection<String>, Map<String, List<Resource>>> upstream) {
+        Map<String, List<Resource>> results = new HashMap<>();
+        List<String> local = new ArrayList<>();
+        Map<String, List<String>> byOwner = new LinkedHashMap<>();
+        for (String tile : tiles) {
+            String owner = membership.ownerOf(tile);
+            if (enabled && owner != null && !membership.isSelf(owner)) {
+                byOwner.computeIfAbsent(owner, k -> new ArrayList<>()).add(tile);
+            } else {
+                local.add(tile);
+            }
+        }
+
+        byOwner.forEach((owner, owned) -> {
+            if (!forwardPermits.tryAcquire()) {
+                // The owner's lock still keeps the upstream fetch to one node
+                log.debug("Too many forwards in flight, fetching tiles {} here", owned);
+                local.addAll(owned);
+                return;
+            }
+            long start = System.nanoTime();
+            try {
+                results.putAll(forward(owner, owned));
+                log.debug("Tiles {} fetched by owner {}", owned, owner);
+            } catch (HttpStatusCodeException e) {
+                // The owner answered, so it is up; an error status says nothing about its membership
+                log.warn("Owner {} of tiles {} answered {}, fetching here", owner, owned, e.getStatusCode());
+                local.addAll(owned);
+            } catch (Exception e) {
+                if (isReadTimeout(e)) {
+                    // Alive but slow; it still holds the tile locks, so waiting here costs no second fetch
+                    log.warn("Owner {} of tiles {} did not answer in time, fetching here", owner, owned);
+                } else if (e instanceof ResourceAccessException) {
+                    log.warn("Owner {} of tiles {} unreachable, fetching here: {}", owner, owned, e.getMessage());
+                    membership.markUnreachable(owner);
+                } else {
+                    // A body that does not decode; keep routing to the owner and fetch this one here
+                    log.warn("Owner {} of tiles {} sent an unusable response, fetching here: {}", owner, owned, e.getMessage());
+                }
+                local.addAll(owned);
+            } finally {
+                forwardPermits.release();
+                RequestTimings.record("cluster_forward", start);
+            }
+        });
+        if (!local.isEmpty()) {
+            results.putAll(fetchAsOwner(local, upstream));
+        }
+        return results;
+    }
+
+    /**
+     * Fetch without forwarding, for tiles this node owns or was asked for by a peer
+     */
+    public Map<String, List<Resource>> fetchAsOwner(Collection<String> tiles, Function<Collection<String>, Map<String, List<Resource>>> upstream) {
+        // One fetch per tile on this node; concurrent requests for the same tile share its result
+        Map<String, CompletableFuture<List<Resource>>> mine = new LinkedHashMap<>();
+        Map<String, CompletableFuture<List<Resource>>> shared = new LinkedHashMap<>();
+        for (String tile : tiles) {
+            CompletableFuture<List<Resource>> future = new CompletableFuture<>();
+            CompletableFuture<List<Resource>> existing = inFlight.putIfAbsent(tile, future);
+            if (existing != null) {
+                shared.put(tile, existing);
+            } else {
+                mine.put(tile, future);
+            }
+        }
+
+        Map<String, List<Resource>> results = new HashMap<>();
+        if (!mine.isEmpty()) {
+            try {
+                Map<String, List<Resource>> fetched = enabled ? fetchOncePerCluster(mine.keySet(), upstream) : upstream.apply(mine.keySet());
+                mine.forEach((tile, future) -> {
+                    List<Resource> resources = fetched.getOrDefault(tile, List.of());
+                    results.put(tile, resources);
+                    future.complete(resources);
+                });
+            } catch (RuntimeException e) {
+                mine.values().forEach(future -> future.completeExceptionally(e));
+                throw e;
+            } finally {
+                mine.forEach(inFlight::remove);
+            }
+        }
+        shared.forEach((tile, future) -> {
+            try {
+                results.put(tile, future.join());
+            } catch (CompletionException e) {
+                throw e.getCause() instanceof RuntimeException ? (RuntimeException) e.getCause() : e;
+            }
+        });
+        return results;
+    }
+
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        CompletableFuture<Void> waiter = waiters.get(new String(message.getBody(), StandardCharsets.UTF_8));
+        if (waiter != null) {
+            waiter.complete(null);
+        }
+    }
+
+    private Map<String, List<Resource>> forward(String owner, List<String> tiles) {
+        HttpHeaders headers = new HttpHeaders();
+        headers.set(ClusterMembership.SECRET_HEADER, membership.secret());
+        byte[] body = peerClient.exchange(owner + "/internal/cluster/tiles?tiles={tiles}", HttpMethod.GET,
+            new HttpEntity<>(headers), byte[].class, String.join(",", tiles)).getBody();
+        if (body == null) {
+            throw new IllegalStateException("empty response");
+        }
+        return OverpassTileStore.decodeTiles(body);
+    }
+
+    private static boolean isReadTimeout(Exception e) {
+        return e instanceof ResourceAccessException
+            && e.getCause() instanceof HttpTimeoutException
+            && !(e.getCause() instanceof HttpConnectTimeoutException);
+    }
+
+    private Map<String, List<Resource>> fetchOncePerCluster(Set<String> tiles, Function<Collection<String>, Map<String, List<Resource>>> upstream) {
+        // Registered before trying the locks so a notification in between is not missed
+        Map<String, CompletableFuture<Void>> notified = new LinkedHashMap<>();
+        tiles.forEach(tile -> {
+            CompletableFuture<Void> waiter = new CompletableFuture<>();
+            notified.put(tile, waiter);
+            waiters.put(tile, waiter);
+        });
+        try {
+            List<String> locked = new ArrayList<>();
+            List<String> lockedElsewhere = new ArrayList<>();
+            try {
+                for (String tile : tiles) {
+                    if (Boolean.TRUE.equals(stringRedisTemplate.opsForValue().setIfAbsent(LOCK_PREFIX + tile, membership.self(), lockTtl))) {
+                        locked.add(tile);
+                    } else {
+                        lockedElsewhere.add(tile);
+                    }
+                }
+            } catch (Exception e) {
+                log.warn("Tile fetch locks unavailable, fetching {} without them: {}", tiles, e.getMessage());
+                locked.forEach(tile -> release(LOCK_PREFIX + tile));
+                return upstream.apply(tiles);
+            }
+
+            Map<String, List<Resource>> results = new HashMap<>();
+            try {
+                // The previous holder may have finished between our cache miss and the lock
+                List<String> toFetch = new ArrayList<>();
+                for (String tile : locked) {
+                    List<Resource> shared = readShared(tile);
+                    if (shared != null) {
+                        results.put(tile, shared);
+                    } else {
+                        toFetch.add(tile);
+                    }
+                }
+                if (!toFetch.isEmpty()) {
+                    Map<String, List<Resource>> fetched = upstream.apply(toFetch);
+                    fetched.forEach(this::share);
+                    results.putAll(fetched);
+                }
+            } finally {
+                locked.forEach(tile -> release(LOCK_PREFIX + tile));
+            }
+
+            if (!lockedElsewhere.isEmpty()) {
+                // Other nodes are fetching these tiles; their results land in the shared cache
+                long start = System.nanoTime();
+                long deadline = start + lockTtl.toNanos();
+                for (String tile : lockedElsewhere) {
+                    try {
+                        notified.get(tile).get(Math.max(deadline - System.nanoTime(), 0), TimeUnit.NANOSECONDS);
+                    } catch (TimeoutException e) {
+                        log.warn("No result for tile {} from the node holding its lock after {}", tile, lockTtl);
+                    } catch (ExecutionException e) {
+                        log.debug("Waiting for tile {} failed: {}", tile, e.getMessage());
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        break;
+                    }
+                }
+                RequestTimings.record("cluster_wait", start);
+
+                List<String> missing = new ArrayList<>();
+                for (String tile : lockedElsewhere) {
+                    List<Resource> shared = readShared(tile);
+                    if (shared != null) {
+                        results.put(tile, shared);
+                    } else {
+                        missing.add(tile);
+                    }
+                }
+                if (!missing.isEmpty()) {
+                    // The fetching node failed or went away
+                    results.putAll(upstream.apply(missing));
+                }
+            }
+            return results;
+        } finally {
+            notified.forEach(waiters::remove);
+        }
+    }
+
+    // Cache first, then notify, so woken nodes find the entry
+    private void share(String tile, List<Resource> resources) {
+        try {
+            Cache cache = cacheManager.getCache(CACHE_NAME);
+            if (cache != null) {
+                cache.put(OverpassService.tileCacheKey(tile), resources);
+            }
+            stringRedisTemplate.convertAndSend(CHANNEL, tile);
+        } catch (Exception e) {
+            log.warn("Failed to share tile {} with the cluster: {}", tile, e.getMessage());
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<Resource> readShared(String tile) {
+        try {
+            Cache cache = cacheManager.getCache(CACHE_NAME);
+            Cache.ValueWrapper cached = cache != null ? cache.get(OverpassService.tileCacheKey(tile)) : null;
+            return cached != null ? (List<Resource>) cached.get() : null;
+        } catch (Exception e) {
+            log.warn("Could not read shared tile {}: {}", tile, e.getMessage());
+            return null;
+        }
+    }
+
+    private void release(String lockKey) {
+        try {
+            stringRedisTemplate.execute(RELEASE_LOCK, List.of(lockKey), membership.self());
+        } catch (Exception e) {
+            log.debug("Failed to release {}, it expires on its own: {}", lockKey, e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,361 @@
+package com.example.communitymap.service;
+
+import com.example.communitymap.exception.ResourceNotFoundException;
+import com.example.communitymap.exception.ValidationException;
+import com.example.communitymap.model.AreaResult;
+import com.example.communitymap.model.AreaStrategy;
+import com.example.communitymap.model.MarkerResult;
+import com.example.communitymap.model.Resource;
+import com.example.communitymap.model.ResourceCluster;
+import com.example.communitymap.model.ResourceMarker;
+import com.example.communitymap.util.RequestTimings;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Combined area lookup: queries the local database and the cached Overpass layer in parallel
+ * and merges them server-side, replacing the per-type client calls and client-side dedup.
+ */
+@Service
+@Slf4j
+public class AreaSearchService {
+
+    private static final double KM_PER_DEGREE = 111.32;
+    private static final double EARTH_RADIUS_KM = 6371.0;
+    // Coordinates closer than this (in degrees, ~11 m) with the same name are the same place
+    private static final double SAME_PLACE_DEGREES = 0.0001;
+    private static final int MAX_LIMIT = 5000;
+
+    private final ResourceService resourceService;
+    private final OverpassService overpassService;
+    // Own bounded pool so slow Overpass calls cannot take over the shared application executor;
+    // when it is saturated the request thread runs the query itself instead of queueing without bound
+    private final ThreadPoolExecutor pool;
+    // Runs tasks on the pool with the request's timings, so their spans reach Server-Timing
+    private final Executor executor;
+    // Up to this many times the limit, answer with a smaller radius; beyond it, with clusters
+    private final double reduceMaxRatio;
+
+    public AreaSearchService(ResourceService resourceService,
+                             OverpassService overpassService,
+                             @Value("${area-planner.reduce-max-ratio:2.0}") double reduceMaxRatio,
+                             @Value("${area-planner.pool-size:16}") int poolSize,
+                             @Value("${area-planner.queue-capacity:64}") int queueCapacity) {
+        this.resourceService = resourceService;
+        this.overpassService = overpassService;
+        this.reduceMaxRatio = reduceMaxRatio;
+        AtomicInteger threadCount = new AtomicInteger();
+        this.pool = new ThreadPoolExecutor(poolSize, poolSize, 60, TimeUnit.SECONDS,
+            new ArrayBlockingQueue<>(queueCapacity), runnable -> {
+                Thread thread = new Thread(runnable, "area-search-" + threadCount.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            }, new ThreadPoolExecutor.CallerRunsPolicy());
+        this.pool.allowCoreThreadTimeOut(true);
+        this.executor = task -> pool.execute(RequestTimings.wrap(task));
+    }
+
+    @PreDestroy
+    void shutdown() {
+        pool.shutdownNow();
+    }
+
+    /**
+     * Plan from a cheap cardinality estimate (database count plus the cached Overpass entry, if
+     * any) before loading points, so dense areas are answered with a smaller radius or clusters
+     * instead of a full fetch that would be thrown away.
+     */
+    public AreaResult findResourcesInArea(double lat, double lon, double radiusKm, int limit) {
+        ResourceService.validateCoordinates(lon, lat);
+        ResourceService.validateDistance(radiusKm / ResourceService.KM_PER_MILE);
+        validateLimit(limit);
+
+        AreaEstimate estimate = estimate(lat, lon, radiusKm);
+        if (estimate.total <= limit) {
+            return points(lat, lon, radiusKm, limit, AreaStrategy.POINTS, estimate.stored, estimate.cachedUpstream);
+        }
+        if (estimate.total <= limit * reduceMaxRatio) {
+            return points(lat, lon, reducedRadiusKm(radiusKm, limit, estimate), limit, AreaStrategy.REDUCED_AREA,
+                estimate.stored, estimate.cachedUpstream);
+        }
+        return clusters(lat, lon, radiusKm, limit, estimate.total, estimate.cachedUpstream);
+    }
+
+    /**
+     * Markers for stored resources and the area's Overpass results, closest first and capped at
+     * limit. Stored copies of Overpass elements share their osmId, so they appear once, with their id.
+     * Planned from the same estimate as findResourcesInArea, so dense areas get a smaller radius or clusters.
+     */
+    public MarkerResult findMarkersInArea(double lat, double lon, double radiusKm, int limit) {
+        ResourceService.validateArea(lon, lat, radiusKm);
+        validateLimit(limit);
+
+        AreaEstimate estimate = estimate(lat, lon, radiusKm);
+        if (estimate.total <= limit) {
+            return markers(lat, lon, radiusKm, limit, AreaStrategy.POINTS, estimate.cachedUpstream);
+        }
+        if (estimate.total <= limit * reduceMaxRatio) {
+            return markers(lat, lon, reducedRadiusKm(radiusKm, limit, estimate), limit, AreaStrategy.REDUCED_AREA,
+                estimate.cachedUpstream);
+        }
+        AreaResult clustered = clusters(lat, lon, radiusKm, limit, estimate.total, estimate.cachedUpstream);
+        return new MarkerResult(List.of(), null, clustered.getTotal(), limit, true, AreaStrategy.CLUSTERS,
+            radiusKm, clustered.getClusters());
+    }
+
+    /**
+     * Details for a marker that only has an osmId: the stored copy if there is one, otherwise the
+     * element from the area's Overpass results (normally still cached from the marker request)
+     */
+    public Resource findOsmResource(String osmId, double lat, double lon, double radiusKm) {
+        ResourceService.validateArea(lon, lat, radiusKm);
+        return resourceService.findResourceByOsmId(osmId)
+            .or(() -> overpassService.fetchAllResources(lat, lon, radiusKm).stream()
+                .filter(resource -> osmId.equals(resource.getOsmId()))
+                .findFirst())
+            .orElseThrow(() -> new ResourceNotFoundException("Resource not found with OSM id: " + osmId));
+    }
+
+    // Database count plus the cached Overpass entry, if any; nothing is fetched upstream
+    private AreaEstimate estimate(double lat, double lon, double radiusKm) {
+        CompletableFuture<Long> storedCount = CompletableFuture.supplyAsync(
+            () -> resourceService.countResourcesNearby(lon, lat, radiusKm / ResourceService.KM_PER_MILE), executor);
+        CompletableFuture<List<Resource>> cachedUpstream = CompletableFuture.supplyAsync(
+            () -> overpassService.peekAllResources(lat, lon, radiusKm), executor);
+        AreaEstimate estimate = new AreaEstimate(join(storedCount), join(cachedUpstream));
+        RequestTimings.note("area_estimate", estimate.total);
+        return estimate;
+    }
+
+    // Assuming uniform density, this radius holds about limit resources
+    private static double reducedRadiusKm(double radiusKm, int limit, AreaEstimate estimate) {
+        return radiusKm * Math.sqrt((double) limit / estimate.total);
+    }
+
+    private MarkerResult markers(double lat, double lon, double radiusKm, int limit, AreaStrategy strategy,
+                                 List<Resource> cachedUpstream) {
+        CompletableFuture<List<ResourceMarker>> local = CompletableFuture.supplyAsync(
+            () -> resourceService.findMarkersNearby(lon, lat, radiusKm / ResourceService.KM_PER_MILE, limit), executor);
+        // A cached entry for the full area already covers a reduced radius; filter it instead of going upstream
+        CompletableFuture<List<Resource>> upstream = cachedUpstream != null
+            ? CompletableFuture.completedFuture(cachedUpstream)
+            : CompletableFuture.supplyAsync(() -> overpassService.fetchAllResources(lat, lon, radiusKm), executor);
+        List<ResourceMarker> stored = join(local);
+        List<Resource> upstreamResources = join(upstream);
+
+        List<ResourceMarker> markers = RequestTimings.time("merge", () -> {
+            List<ResourceMarker> merged = new ArrayList<>(stored.size() + upstreamResources.size());
+            merged.addAll(stored);
+            Set<String> seenOsmIds = new HashSet<>();
+            stored.forEach(marker -> {
+                if (marker.getOsmId() != null) {
+                    seenOsmIds.add(marker.getOsmId());
+                }
+            });
+            for (Resource resource : withinRadius(upstreamResources, lat, lon, radiusKm)) {
+                if (resource.getOsmId() == null || seenOsmIds.add(resource.getOsmId())) {
+                    merged.add(new ResourceMarker(null, resource.getOsmId(), resource.getType(),
+                        resource.getLocation().getY(), resource.getLocation().getX()));
+                }
+            }
+            merged.sort(Comparator.comparingDouble(marker -> distanceKm(lat, lon, marker.getLat(), marker.getLon())));
+            return merged;
+        });
+
+        // Stored markers are fetched up to limit only, so total is a lower bound when they fill it
+        int total = markers.size();
+        boolean overflow = total > limit;
+        List<ResourceMarker> capped = overflow ? new ArrayList<>(markers.subList(0, limit)) : markers;
+        log.info("Markers ({}, {}) {}km [{}]: {} distinct markers, returning {}", lat, lon, radiusKm, strategy, total, capped.size());
+        return new MarkerResult(capped, null, total, limit, overflow, strategy, radiusKm, List.of());
+    }
+
+    private AreaResult points(double lat, double lon, double radiusKm, int limit, AreaStrategy strategy,
+                              long stored, List<Resource> cachedUpstream) {
+        // Load every stored resource in the area, not just the first page, so total and overflow are exact;
+        // the planner only gets here when the count is within reduceMaxRatio of the limit
+        int storedLimit = (int) Math.min(stored, Integer.MAX_VALUE);
+        CompletableFuture<List<Resource>> local = storedLimit == 0
+            ? CompletableFuture.completedFuture(List.of())
+            : CompletableFuture.supplyAsync(
+                () -> resourceService.findResourcesNearby(lon, lat, radiusKm / ResourceService.KM_PER_MILE, storedLimit), executor);
+        // A cached entry for the full area already covers a reduced radius; filter it instead of going upstream
+        CompletableFuture<List<Resource>> upstream = cachedUpstream != null
+            ? CompletableFuture.completedFuture(withinRadius(cachedUpstream, lat, lon, radiusKm))
+            : CompletableFuture.supplyAsync(() -> overpassService.fetchAllResources(lat, lon, radiusKm), executor);
+
+        // Database documents first so their ids win over transient Overpass copies
+        List<Resource> localResources = join(local);
+        List<Resource> upstreamResources = join(upstream);
+        List<Resource> merged = RequestTimings.time("merge", () -> mergeResources(localResources, upstreamResources));
+
+        int total = merged.size();
+        boolean overflow = total > limit;
+        List<Resource> capped = overflow ? new ArrayList<>(merged.subList(0, limit)) : merged;
+        log.info("Area ({}, {}) {}km [{}]: {} distinct resources, returning {}", lat, lon, radiusKm, strategy, total, capped.size());
+        return new AreaResult(capped, total, limit, overflow, strategy, radiusKm, List.of());
+    }
+
+    private AreaResult clusters(double lat, double lon, double radiusKm, int limit, long estimate, List<Resource> cachedUpstream) {
+        // About limit cells across the area's bounding square
+        double cellDegrees = 2 * radiusKm / KM_PER_DEGREE / Math.ceil(Math.sqrt(limit));
+        List<ResourceCluster> stored = resourceService.clusterResourcesNearby(lon, lat, radiusKm / ResourceService.KM_PER_MILE, cellDegrees);
+
+        Map<Long, ResourceCluster> cells = new LinkedHashMap<>();
+        for (ResourceCluster cluster : stored) {
+            // A centroid lies inside its own cell
+            cells.put(cellKey(cell(cluster.getLon(), cellDegrees), cell(cluster.getLat(), cellDegrees)), cluster);
+        }
+        if (cachedUpstream != null) {
+            for (Resource resource : withinRadius(cachedUpstream, lat, lon, radiusKm)) {
+                double rLon = resource.getLocation().getX();
+                double rLat = resource.getLocation().getY();
+                ResourceCluster cluster = cells.computeIfAbsent(cellKey(cell(rLon, cellDegrees), cell(rLat, cellDegrees)),
+                    key -> new ResourceCluster(rLat, rLon, 0, new LinkedHashMap<>()));
+                int count = cluster.getCount() + 1;
+                cluster.setLat(cluster.getLat() + (rLat - cluster.getLat()) / count);
+                cluster.setLon(cluster.getLon() + (rLon - cluster.getLon()) / count);
+                cluster.setCount(count);
+                cluster.getTypes().merge(resource.getType() != null ? resource.getType() : "UNKNOWN", 1, Integer::sum);
+            }
+        }
+
+        log.info("Area ({}, {}) {}km [CLUSTERS]: ~{} resources in {} clusters", lat, lon, radiusKm, estimate, cells.size());
+        return new AreaResult(List.of(), (int) Math.min(estimate, Integer.MAX_VALUE), limit, true,
+            AreaStrategy.CLUSTERS, radiusKm, new ArrayList<>(cells.values()));
+    }
+
+    private static class AreaEstimate {
+        private final long stored;
+        // Null when the area's Overpass results are not cached
+        private final List<Resource> cachedUpstream;
+        // Upper bound: saved Overpass elements are counted in both sources
+        private final long total;
+
+        AreaEstimate(long stored, List<Resource> cachedUpstream) {
+            this.stored = stored;
+            this.cachedUpstream = cachedUpstream;
+            this.total = stored + (cachedUpstream != null ? cachedUpstream.size() : 0);
+        }
+    }
+
+    private static void validateLimit(int limit) {
+        if (limit <= 0 || limit > MAX_LIMIT) {
+            throw new ValidationException("Limit must be between 1 and " + MAX_LIMIT);
+        }
+    }
+
+    private static List<Resource> withinRadius(List<Resource> resources, double lat, double lon, double radiusKm) {
+        List<Resource> within = new ArrayList<>(resources.size());
+        for (Resource resource : resources) {
+            if (resource.getLocation() != null
+                    && distanceKm(lat, lon, resource.getLocation().getY(), resource.getLocation().getX()) <= radiusKm) {
+                within.add(resource);
+            }
+        }
+        return within;
+    }
+
+    private static double distanceKm(double lat1, double lon1, double lat2, double lon2) {
+        double dLat = Math.toRadians(lat2 - lat1);
+        double dLon = Math.toRadians(lon2 - lon1);
+        double a = Math.sin(dLat / 2) * Math.sin(dLat / 2)
+            + Math.cos(Math.toRadians(lat1)) * Math.cos(Math.toRadians(lat2)) * Math.sin(dLon / 2) * Math.sin(dLon / 2);
+        return 2 * EARTH_RADIUS_KM * Math.asin(Math.sqrt(a));
+    }
+
+    private static long cell(double degrees, double cellDegrees) {
+        return (long) Math.floor(degrees / cellDegrees);
+    }
+
+    private static <T> T join(CompletableFuture<T> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Merge in O(n): a resource is a duplicate if its OSM id was already seen, or if a resource
+     * with the same name lies within {@link #SAME_PLACE_DEGREES} (checked via a spatial hash
+     * of neighbouring cells instead of a pairwise scan).
+     */
+    static List<Resource> mergeResources(List<Resource> primary, List<Resource> secondary) {
+        List<Resource> merged = new ArrayList<>(primary.size() + secondary.size());
+        Set<String> seenOsmIds = new HashSet<>();
+        Map<Long, List<Resource>> cells = new HashMap<>();
+
+        for (List<Resource> source : List.of(primary, secondary)) {
+            for (Resource resource : source) {
+                if (resource.getOsmId() != null && !seenOsmIds.add(resource.getOsmId())) {
+                    continue;
+                }
+                if (resource.getLocation() == null || isNearDuplicate(resource, cells)) {
+                    continue;
+                }
+                cells.computeIfAbsent(cellKey(cellX(resource), cellY(resource)), k -> new ArrayList<>()).add(resource);
+                merged.add(resource);
+            }
+        }
+        return merged;
+    }
+
+    private static boolean isNearDuplicate(Resource resource, Map<Long, List<Resource>> cells) {
+        long x = cellX(resource);
+        long y = cellY(resource);
+        for (long dx = -1; dx <= 1; dx++) {
+            for (long dy = -1; dy <= 1; dy++) {
+                List<Resource> candidates = cells.get(cellKey(x + dx, y + dy));
+                if (candidates == null) {
+                    continue;
+                }
+                for (Resource other : candidates) {
+                    if (samePlace(resource, other)) {
+                        return true;
+                    }
+                }
+            }
+        }
+        return false;
+    }
+
+    private static boolean samePlace(Resource a, Resource b) {
+        return a.getName() != null && a.getName().equals(b.getName())
+            && Math.abs(a.getLocation().getX() - b.getLocation().getX()) < SAME_PLACE_DEGREES
+            && Math.abs(a.getLocation().getY() - b.getLocation().getY()) < SAME_PLACE_DEGREES;
+    }
+
+    private static long cellX(Resource resource) {
+        return (long) Math.floor(resource.getLocation().getX() / SAME_PLACE_DEGREES);
+    }
+
+    private static long cellY(Resource resource) {
+        return (long) Math.floor(resource.getLocation().getY() / SAME_PLACE_DEGREES);
+    }
+
+    private static long cellKey(long x, long y) {
+        return (x << 32) ^ (y & 0xffffffffL);
+    }
+}
@@ -0,0 +1,192 @@
+package com.example.communitymap.service;
+
+import com.example.communitymap.model.BatchSearchRequest;
+import com.example.communitymap.model.BatchSearchResult;
+import com.example.communitymap.model.Resource;
+import com.example.communitymap.repository.ResourceRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Proximity search for many points at once. Runs the per-point queries in parallel with a
+ * bounded number in flight per request and streams each result as soon as it completes.
+ * Each response is written from a dedicated streaming pool with its own timeout, so long
+ * batches neither hold the shared MVC async executor nor need a global async timeout.
+ */
+@Service
+@Slf4j
+public class BatchSearchService {
+
+    private static final double DEFAULT_RADIUS_MILES = 1.0;
+    private static final int DEFAULT_LIMIT = 20;
+    private static final int MAX_LIMIT = 100;
+    private static final byte[] NEWLINE = {'\n'};
+
+    private final ResourceRepository resourceRepository;
+    private final ObjectMapper objectMapper;
+    private final int maxInFlight;
+    private final Duration timeout;
+    // Dedicated pool, kept out of the context so Boot's applicationTaskExecutor still applies
+    private final ExecutorService executor;
+    // Drives one response each: submits its queries and writes the results as they complete
+    private final ThreadPoolExecutor streamExecutor;
+
+    public BatchSearchService(ResourceRepository resourceRepository,
+                              ObjectMapper objectMapper,
+                              @Value("${batch-search.pool-size:16}") int poolSize,
+                              @Value("${batch-search.max-in-flight:8}") int maxInFlight,
+                              @Value("${batch-search.stream-pool-size:16}") int streamPoolSize,
+                              @Value("${batch-search.stream-queue-capacity:64}") int streamQueueCapacity,
+                              @Value("${batch-search.timeout:PT120S}") Duration timeout) {
+        this.resourceRepository = resourceRepository;
+        this.objectMapper = objectMapper;
+        this.maxInFlight = maxInFlight;
+        this.timeout = timeout;
+        AtomicInteger threadCount = new AtomicInteger();
+        this.executor = Executors.newFixedThreadPool(poolSize, runnable -> {
+            Thread thread = new Thread(runnable, "batch-search-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        AtomicInteger streamThreadCount = new AtomicInteger();
+        // Full pool and queue: the request is rejected rather than waiting without bound
+        this.streamExecutor = new ThreadPoolExecutor(streamPoolSize, streamPoolSize, 60, TimeUnit.SECONDS,
+            new ArrayBlockingQueue<>(streamQueueCapacity), runnable -> {
+                Thread thread = new Thread(runnable, "batch-stream-" + streamThreadCount.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            });
+        this.streamExecutor.allowCoreThreadTimeOut(true);
+    }
+
+    @PreDestroy
+    void shutdown() {
+        streamExecutor.shutdownNow();
+        executor.shutdownNow();
+    }
+
+    /**
+     * Start streaming the results of a batch as NDJSON; the emitter times out after batch-search.timeout
+     *
+     * @throws RejectedExecutionException if too many batches are already streaming or queued
+     */
+    public ResponseBodyEmitter stream(BatchSearchRequest request) {
+        ResponseBodyEmitter emitter = new ResponseBodyEmitter(timeout.toMillis());
+        emitter.onTimeout(() -> log.warn("Batch search of {} points timed out after {}", request.getPoints().size(), timeout));
+        streamExecutor.execute(() -> {
+            try {
+                search(request, new EmitterOutputStream(emitter));
+                emitter.complete();
+            } catch (Exception e) {
+                // Client gone or emitter timed out; stop writing
+                log.debug("Batch search stream ended early: {}", e.getMessage());
+                emitter.completeWithError(e);
+            }
+        });
+        return emitter;
+    }
+
+    /**
+     * Write one NDJSON line per point, in completion order; failed points carry an error
+     */
+    public void search(BatchSearchRequest request, OutputStream out) throws IOException {
+        List<BatchSearchRequest.Point> points = request.getPoints();
+        log.info("Batch proximity search for {} points", points.size());
+
+        CompletionService<BatchSearchResult> completion = new ExecutorCompletionService<>(executor);
+        int submitted = 0;
+        int written = 0;
+        try {
+            while (written < points.size()) {
+                // Keep at most maxInFlight queries running for this request
+                while (submitted < points.size() && submitted - written < maxInFlight) {
+                    int index = submitted++;
+                    completion.submit(() -> searchPoint(index, points.get(index)));
+                }
+                BatchSearchResult result = completion.take().get();
+                out.write(objectMapper.writeValueAsBytes(result));
+                out.write(NEWLINE);
+                out.flush();
+                written++;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Batch search interrupted", e);
+        } catch (ExecutionException e) {
+            // searchPoint reports failures in the result, so this is unexpected
+            throw new IOException("Batch search failed", e.getCause());
+        }
+    }
+
+    private BatchSearchResult searchPoint(int index, BatchSearchRequest.Point point) {
+        try {
+            double radius = point.getRadius() != null ? point.getRadius() : DEFAULT_RADIUS_MILES;
+            int limit = point.getLimit() != null ? point.getLimit() : DEFAULT_LIMIT;
+            ResourceService.validateCoordinates(point.getLon(), point.getLat());
+            ResourceService.validateDistance(radius);
+            if (limit <= 0 || limit > MAX_LIMIT) {
+                throw new IllegalArgumentException("Limit must be between 1 and " + MAX_LIMIT);
+            }
+
+            double maxDistance = radius * ResourceService.METERS_PER_MILE;
+            PageRequest page = PageRequest.of(0, limit);
+            List<Resource> resources = point.getType() == null || point.getType().isBlank()
+                ? resourceRepository.findNearbyResourcesOptimized(point.getLat(), point.getLon(), maxDistance, page)
+                : resourceRepository.findByTypeAndLocationNear(point.getType().trim().toUpperCase(), point.getLat(), point.getLon(), maxDistance, page);
+            return new BatchSearchResult(index, point.getId(), resources, null);
+        } catch (Exception e) {
+            log.debug("Batch point {} failed: {}", index, e.getMessage());
+            return new BatchSearchResult(index, point.getId(), null, e.getMessage());
+        }
+    }
+
+    // Buffers one NDJSON line and hands it to the emitter on flush
+    private static class EmitterOutputStream extends OutputStream {
+        private final ResponseBodyEmitter emitter;
+        private final ByteArrayOutputStream line = new ByteArrayOutputStream();
+
+        EmitterOutputStream(ResponseBodyEmitter emitter) {
+            this.emitter = emitter;
+        }
+
+        @Override
+        public void write(int b) {
+            line.write(b);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+            line.write(b, off, len);
+        }
+
+        @Override
+        public void flush() throws IOException {
+            if (line.size() > 0) {
+                emitter.send(line.toByteArray(), MediaType.APPLICATION_NDJSON);
+                line.reset();
+            }
+        }
+    }
+}
@@ -0,0 +1,188 @@
+package com.example.communitymap.service;
+
+import com.example.communitymap.util.Geohash;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.mongodb.core.geo.GeoJsonPoint;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.stereotype.Service;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.Objects;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Spatially aware cache invalidation. Area cache entries are registered under the geohash
+ * cells they cover; a write evicts only the entries registered for the cells it touches
+ * and broadcasts those cells so every node can drop its in-process state for them.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class CacheInvalidationService implements MessageListener {
+
+    public static final String CHANNEL = "communitymap:cells-invalidated";
+    private static final String CELL_KEY_PREFIX = "cache-cells:";
+    private static final String ENTRY_SEPARATOR = "::";
+
+    private final CacheManager cacheManager;
+    private final StringRedisTemplate stringRedisTemplate;
+    private final RedisMessageListenerContainer listenerContainer;
+    private final ObjectProvider<CellInvalidationListener> listeners;
+
+    @Value("${cache.invalidation.geohash-precision:5}")
+    private int precision;
+
+    @Value("${cache.all-resources.ttl:PT6H}")
+    private Duration entryTtl;
+
+    // Subscribed once the context is up so an unavailable Redis does not block startup
+    @EventListener(ApplicationReadyEvent.class)
+    void subscribe() {
+        try {
+            listenerContainer.addMessageListener(this, new ChannelTopic(CHANNEL));
+        } catch (Exception e) {
+            log.warn("Redis subscription to {} not ready, the listener container keeps retrying: {}", CHANNEL, e.getMessage());
+        }
+    }
+
+    /**
+     * Record that a cache entry holds data for the circle around (lat, lon)
+     */
+    public void registerAreaEntry(String cacheName, String key, double lat, double lon, double radiusKm) {
+        register(cacheName, key, Geohash.cover(lat, lon, radiusKm, precision));
+    }
+
+    /**
+     * Record that a cache entry holds data for one geohash tile
+     */
+    public void registerTileEntry(String cacheName, String key, String tile) {
+        register(cacheName, key, Geohash.cellsOf(tile, precision));
+    }
+
+    /**
+     * Check that an entry registered with {@link #registerAreaEntry} is still registered under
+     * all of its cells. A write to the area since the registration removed it from at least one
+     * cell, so the entry is evicted and false returned; its data may predate that write.
+     * Without Redis nothing can be checked and the entry is kept.
+     */
+    public boolean confirmAreaEntry(String cacheName, String key, double lat, double lon, double radiusKm) {
+        return confirm(cacheName, key, Geohash.cover(lat, lon, radiusKm, precision));
+    }
+
+    /**
+     * {@link #confirmAreaEntry} for an entry registered with {@link #registerTileEntry}
+     */
+    public boolean confirmTileEntry(String cacheName, String key, String tile) {
+        return confirm(cacheName, key, Geohash.cellsOf(tile, precision));
+    }
+
+    /**
+     * Evict every cache entry covering any of the given points and notify all nodes
+     */
+    public void invalidate(Collection<GeoJsonPoint> points) {
+        Set<String> cells = points.stream()
+            .filter(Objects::nonNull)
+            .map(point -> Geohash.encode(point.getY(), point.getX(), precision))
+            .collect(Collectors.toCollection(LinkedHashSet::new));
+        if (cells.isEmpty()) {
+            return;
+        }
+
+        int evicted = 0;
+        try {
+            for (String cell : cells) {
+                String cellKey = CELL_KEY_PREFIX + cell;
+                Set<String> entries = stringRedisTemplate.opsForSet().members(cellKey);
+                stringRedisTemplate.delete(cellKey);
+                if (entries != null) {
+                    for (String entry : entries) {
+                        evicted += evict(entry) ? 1 : 0;
+                    }
+                }
+            }
+            stringRedisTemplate.convertAndSend(CHANNEL, String.join(",", cells));
+        } catch (Exception e) {
+            // Redis unavailable: at least keep this node's in-process state consistent
+            log.warn("Failed to invalidate cells {}: {}", cells, e.getMessage());
+            notifyListeners(cells);
+        }
+        log.debug("Invalidated cells {} ({} cache entries)", cells, evicted);
+    }
+
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        String body = new String(message.getBody(), StandardCharsets.UTF_8);
+        Set<String> cells = Arrays.stream(body.split(","))
+            .filter(cell -> !cell.isEmpty())
+            .collect(Collectors.toCollection(LinkedHashSet::new));
+        notifyListeners(cells);
+    }
+
+    private void register(String cacheName, String key, Set<String> cells) {
+        String entry = cacheName + ENTRY_SEPARATOR + key;
+        try {
+            for (String cell : cells) {
+                String cellKey = CELL_KEY_PREFIX + cell;
+                stringRedisTemplate.opsForSet().add(cellKey, entry);
+                stringRedisTemplate.expire(cellKey, entryTtl);
+            }
+            log.debug("Registered {} under {} cells", entry, cells.size());
+        } catch (Exception e) {
+            log.warn("Failed to register cache entry {} for invalidation: {}", entry, e.getMessage());
+        }
+    }
+
+    private boolean confirm(String cacheName, String key, Set<String> cells) {
+        String entry = cacheName + ENTRY_SEPARATOR + key;
+        try {
+            for (String cell : cells) {
+                if (!Boolean.TRUE.equals(stringRedisTemplate.opsForSet().isMember(CELL_KEY_PREFIX + cell, entry))) {
+                    evict(entry);
+                    return false;
+                }
+            }
+        } catch (Exception e) {
+            log.warn("Failed to confirm cache entry {}: {}", entry, e.getMessage());
+        }
+        return true;
+    }
+
+    private boolean evict(String entry) {
+        int separator = entry.indexOf(ENTRY_SEPARATOR);
+        if (separator < 0) {
+            return false;
+        }
+        Cache cache = cacheManager.getCache(entry.substring(0, separator));
+        if (cache == null) {
+            return false;
+        }
+        cache.evict(entry.substring(separator + ENTRY_SEPARATOR.length()));
+        return true;
+    }
+
+    private void notifyListeners(Set<String> cells) {
+        listeners.orderedStream().forEach(listener -> {
+            try {
+                listener.onCellsInvalidated(cells);
+            } catch (Exception e) {
+                log.warn("Cell invalidation listener {} failed: {}", listener.getClass().getSimpleName(), e.getMessage());
+            }
+        });
+    }
+}
@@ -0,0 +1,12 @@
+package com.example.communitymap.service;
+
+import java.util.Set;
+
+/**
+ * Implemented by in-process indexes or caches that hold data per geohash cell.
+ * Called on every node when a write touches any of the given cells.
+ */
+public interface CellInvalidationListener {
+
+    void onCellsInvalidated(Set<String> cells);
+}
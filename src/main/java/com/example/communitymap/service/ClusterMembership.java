@@ -0,0 +1,177 @@
+package com.example.communitymap.service;
+
+import com.example.communitymap.util.ConsistentHashRing;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.time.Duration;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Live backend nodes, tracked in a Redis sorted set scored by each node's last heartbeat,
+ * and the consistent-hash ring that assigns every Overpass tile to one of them. Without
+ * Redis the node is alone on its ring and owns every tile.
+ */
+@Component
+@Slf4j
+public class ClusterMembership {
+
+    public static final String SECRET_HEADER = "X-Cluster-Secret";
+    private static final String MEMBERS_KEY = "communitymap:cluster:members";
+
+    private final StringRedisTemplate stringRedisTemplate;
+    private final boolean enabled;
+    private final String self;
+    private final String secret;
+    private final Duration heartbeatInterval;
+    private final Duration memberTtl;
+    private final ScheduledExecutorService heartbeat = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "cluster-heartbeat");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    // Peers that failed a forward are left off the ring until their heartbeat outlives this
+    private final Map<String, Long> unreachableUntil = new ConcurrentHashMap<>();
+    private volatile Set<String> heartbeatMembers;
+    private volatile Set<String> members;
+    private volatile ConsistentHashRing ring;
+
+    public ClusterMembership(StringRedisTemplate stringRedisTemplate,
+                             @Value("${cluster.enabled:false}") boolean enabled,
+                             @Value("${cluster.node-url:}") String nodeUrl,
+                             @Value("${cluster.secret:}") String secret,
+                             @Value("${server.port:8080}") int serverPort,
+                             @Value("${cluster.heartbeat-interval:PT5S}") Duration heartbeatInterval,
+                             @Value("${cluster.member-ttl:PT15S}") Duration memberTtl) {
+        // Peers would forward to, and lock tiles as, an address that only reaches themselves
+        if (enabled && nodeUrl.isBlank()) {
+            throw new IllegalStateException("cluster.node-url (CLUSTER_NODE_URL) must be set to this node's address when cluster.enabled is true");
+        }
+        if (enabled && secret.isBlank()) {
+            throw new IllegalStateException("cluster.secret (CLUSTER_SECRET) must be set when cluster.enabled is true");
+        }
+        this.stringRedisTemplate = stringRedisTemplate;
+        this.enabled = enabled;
+        String url = nodeUrl.isBlank() ? "http://localhost:" + serverPort : nodeUrl;
+        this.self = url.endsWith("/") ? url.substring(0, url.length() - 1) : url;
+        this.secret = secret;
+        this.heartbeatInterval = heartbeatInterval;
+        this.memberTtl = memberTtl;
+        this.heartbeatMembers = Set.of(self);
+        updateRing(Set.of(self));
+    }
+
+    // Join once the context is up so requests are only routed here when this node can serve them
+    @EventListener(ApplicationReadyEvent.class)
+    void start() {
+        if (!enabled) {
+            return;
+        }
+        long intervalMs = heartbeatInterval.toMillis();
+        heartbeat.scheduleAtFixedRate(this::beat, 0, intervalMs, TimeUnit.MILLISECONDS);
+        log.info("Cluster node {} heartbeating every {}", self, heartbeatInterval);
+    }
+
+    @PreDestroy
+    void shutdown() {
+        heartbeat.shutdownNow();
+        if (!enabled) {
+            return;
+        }
+        try {
+            // Leave right away instead of waiting for the member TTL
+            stringRedisTemplate.opsForZSet().remove(MEMBERS_KEY, self);
+        } catch (Exception e) {
+            log.debug("Could not leave cluster: {}", e.getMessage());
+        }
+    }
+
+    public String self() {
+        return self;
+    }
+
+    public boolean isSelf(String member) {
+        return self.equals(member);
+    }
+
+    /**
+     * The secret peers send in {@link #SECRET_HEADER}
+     */
+    public String secret() {
+        return secret;
+    }
+
+    /**
+     * Whether a request carries this cluster's secret; always false when none is configured
+     */
+    public boolean isAuthorized(String presented) {
+        return !secret.isBlank() && presented != null
+            && MessageDigest.isEqual(secret.getBytes(StandardCharsets.UTF_8), presented.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public Set<String> members() {
+        return members;
+    }
+
+    public String ownerOf(String key) {
+        return ring.ownerOf(key);
+    }
+
+    /**
+     * Route around a peer that did not answer a forward until a later heartbeat shows it alive
+     */
+    public void markUnreachable(String member) {
+        if (isSelf(member)) {
+            return;
+        }
+        unreachableUntil.put(member, System.currentTimeMillis() + memberTtl.toMillis());
+        updateRing(heartbeatMembers);
+    }
+
+    private void beat() {
+        long now = System.currentTimeMillis();
+        try {
+            stringRedisTemplate.opsForZSet().add(MEMBERS_KEY, self, now);
+            stringRedisTemplate.opsForZSet().removeRangeByScore(MEMBERS_KEY, 0, now - memberTtl.toMillis());
+            Set<String> live = stringRedisTemplate.opsForZSet().rangeByScore(MEMBERS_KEY, now - memberTtl.toMillis(), Double.POSITIVE_INFINITY);
+            Set<String> current = new TreeSet<>(live != null ? live : List.of());
+            current.add(self);
+            heartbeatMembers = current;
+        } catch (Exception e) {
+            if (heartbeatMembers.size() > 1) {
+                log.warn("Cluster heartbeat failed, fetching every tile locally: {}", e.getMessage());
+            }
+            heartbeatMembers = Set.of(self);
+        }
+        unreachableUntil.values().removeIf(until -> until < now);
+        updateRing(heartbeatMembers);
+    }
+
+    private synchronized void updateRing(Set<String> candidates) {
+        Set<String> reachable = new TreeSet<>(candidates);
+        reachable.removeAll(unreachableUntil.keySet());
+        if (!reachable.equals(members)) {
+            if (members != null) {
+                log.info("Cluster members changed: {}", reachable);
+            }
+            members = Collections.unmodifiableSet(reachable);
+            ring = new ConsistentHashRing(reachable);
+        }
+    }
+}
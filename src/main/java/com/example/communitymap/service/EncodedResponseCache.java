@@ -0,0 +1,150 @@
+package com.example.communitymap.service;
+
+import com.example.communitymap.util.RequestTimings;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.util.DigestUtils;
+import org.springframework.util.unit.DataSize;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.Duration;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * In-process cache of already serialized (and gzipped) JSON responses for hot keys.
+ * An entry is valid only for the data version it was built from, so a write elsewhere
+ * makes the next request rebuild it; the TTL bounds staleness of upstream Overpass data.
+ */
+@Service
+@Slf4j
+public class EncodedResponseCache {
+
+    private final ObjectMapper objectMapper;
+    private final Map<String, EncodedResponse> entries = new ConcurrentHashMap<>();
+    // JSON plus gzip bytes of all entries
+    private final AtomicLong totalBytes = new AtomicLong();
+
+    @Value("${response-cache.max-entries:500}")
+    private int maxEntries;
+
+    @Value("${response-cache.ttl:PT60S}")
+    private Duration ttl;
+
+    @Value("${response-cache.max-entry-bytes:2097152}")
+    private int maxEntryBytes;
+
+    @Value("${response-cache.max-bytes:64MB}")
+    private DataSize maxBytes;
+
+    @Value("${server.compression.min-response-size:1024}")
+    private int minGzipBytes;
+
+    public EncodedResponseCache(ObjectMapper objectMapper) {
+        this.objectMapper = objectMapper;
+    }
+
+    /**
+     * Cached encoding of the body for (key, version), building and storing it on a miss
+     */
+    public EncodedResponse get(String key, long version, Supplier<Object> body) {
+        long now = System.currentTimeMillis();
+        EncodedResponse cached = entries.get(key);
+        if (cached != null && cached.version == version && now - cached.createdAt < ttl.toMillis()) {
+            RequestTimings.note("response_cache", "hit");
+            return cached;
+        }
+
+        RequestTimings.note("response_cache", "miss");
+        Object value = body.get();
+        EncodedResponse encoded = RequestTimings.time("serialize", () -> encode(value, version, now));
+        if (encoded.json.length <= maxEntryBytes) {
+            EncodedResponse previous = entries.put(key, encoded);
+            totalBytes.addAndGet(encoded.size() - (previous != null ? previous.size() : 0));
+            evictIfFull();
+        }
+        return encoded;
+    }
+
+    private EncodedResponse encode(Object body, long version, long now) {
+        try {
+            byte[] json = objectMapper.writeValueAsBytes(body);
+            byte[] gzip = json.length >= minGzipBytes ? gzip(json) : null;
+            String etag = "\"" + DigestUtils.md5DigestAsHex(json) + "\"";
+            return new EncodedResponse(json, gzip, etag, version, now);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Failed to serialize response", e);
+        }
+    }
+
+    private static byte[] gzip(byte[] json) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(json.length / 4 + 64);
+        try (GZIPOutputStream gzip = new GZIPOutputStream(out)) {
+            gzip.write(json);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return out.toByteArray();
+    }
+
+    // Once over either bound, drop the oldest entries until 90% of both is left; amortizes the scan over many inserts
+    private void evictIfFull() {
+        long byteLimit = maxBytes.toBytes();
+        if (entries.size() <= maxEntries && totalBytes.get() <= byteLimit) {
+            return;
+        }
+        int entryTarget = maxEntries - Math.max(1, maxEntries / 10);
+        long byteTarget = byteLimit - byteLimit / 10;
+        List<Map.Entry<String, EncodedResponse>> oldestFirst = entries.entrySet().stream()
+            .sorted(Comparator.comparingLong(entry -> entry.getValue().createdAt))
+            .toList();
+        int evicted = 0;
+        for (Map.Entry<String, EncodedResponse> entry : oldestFirst) {
+            if (entries.size() <= entryTarget && totalBytes.get() <= byteTarget) {
+                break;
+            }
+            // Only if not replaced meanwhile, so the byte count stays exact
+            if (entries.remove(entry.getKey(), entry.getValue())) {
+                totalBytes.addAndGet(-entry.getValue().size());
+                evicted++;
+            }
+        }
+        log.debug("Evicted {} encoded responses, {} bytes cached", evicted, totalBytes.get());
+    }
+
+    @Getter
+    public static class EncodedResponse {
+        private final byte[] json;
+        // Null when the body is below the compression threshold
+        private final byte[] gzip;
+        private final String etag;
+        // Strong ETags are per representation, so the gzipped body gets its own
+        private final String gzipEtag;
+        private final long version;
+        private final long createdAt;
+
+        EncodedResponse(byte[] json, byte[] gzip, String etag, long version, long createdAt) {
+            this.json = json;
+            this.gzip = gzip;
+            this.etag = etag;
+            this.gzipEtag = etag.substring(0, etag.length() - 1) + "-gz\"";
+            this.version = version;
+            this.createdAt = createdAt;
+        }
+
+        long size() {
+            return json.length + (gzip != null ? gzip.length : 0);
+        }
+    }
+}
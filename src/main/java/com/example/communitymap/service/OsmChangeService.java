@@ -0,0 +1,272 @@
+package com.example.communitymap.service;
+
+import com.example.communitymap.exception.ValidationException;
+import com.example.communitymap.model.IngestionResult;
+import com.example.communitymap.model.Resource;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.io.InputStream;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Incremental refresh of OSM-backed resources. Applies osmChange files or Overpass
+ * (newer:...) results so only changed or deleted elements touch the database.
+ * Cache invalidation happens per written location in {@link ResourceService}.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class OsmChangeService {
+
+    private static final int BATCH_SIZE = 500;
+
+    private final ResourceService resourceService;
+    private final OverpassService overpassService;
+    private final OverpassElementMapper elementMapper;
+
+    /**
+     * Apply an osmChange XML document (create/modify/delete blocks).
+     * Ways get their location from the centroid of nodes present in the same file.
+     */
+    public IngestionResult applyChangeFile(InputStream xml) {
+        List<ChangeElement> elements = parseChangeFile(xml);
+
+        // Node coordinates in this file, used to place ways, and the nodes ways are built from
+        Map<Long, double[]> nodeCoordinates = new HashMap<>();
+        Set<Long> wayNodes = new HashSet<>();
+        for (ChangeElement element : elements) {
+            if ("node".equals(element.type) && !"delete".equals(element.action) && element.lat != null) {
+                nodeCoordinates.put(element.id, new double[] {element.lat, element.lon});
+            }
+            if ("way".equals(element.type)) {
+                wayNodes.addAll(element.nodeRefs);
+            }
+        }
+
+        ChangeBatch batch = new ChangeBatch();
+        for (ChangeElement element : elements) {
+            String osmId = OverpassElementMapper.osmKey(element.type, element.id);
+
+            if ("delete".equals(element.action)) {
+                batch.delete(osmId);
+                continue;
+            }
+
+            // Untagged geometry (a new element, or a vertex of a way in this file) was never a resource.
+            // Way vertices make up most of a change file and would otherwise all become deletes.
+            if (element.tags.isEmpty() && ("create".equals(element.action)
+                    || ("node".equals(element.type) && wayNodes.contains(element.id)))) {
+                continue;
+            }
+
+            // Element no longer carries a tracked amenity: drop it if we had it
+            if (!elementMapper.isTracked(element.tags)) {
+                batch.delete(osmId);
+                continue;
+            }
+
+            Resource resource = elementMapper.toResource(element.toOverpassShape(nodeCoordinates), "ALL");
+            if (resource == null) {
+                log.debug("Skipping {} without resolvable coordinates", osmId);
+                batch.skipped++;
+                continue;
+            }
+            batch.upsert(resource);
+        }
+        batch.flush();
+
+        log.info("Applied osmChange: {} upserted, {} deleted, {} skipped", batch.upserted, batch.deleted, batch.skipped);
+        return new IngestionResult(batch.upserted, batch.deleted, batch.skipped);
+    }
+
+    /**
+     * Pull elements changed upstream since the given instant and upsert them.
+     * The (newer:...) filter does not report deletions; use change files for those.
+     */
+    public IngestionResult refreshArea(double lat, double lon, double radiusKm, Instant since) {
+        List<Resource> changed = overpassService.fetchChangedResources(lat, lon, radiusKm, since);
+
+        ChangeBatch batch = new ChangeBatch();
+        changed.forEach(batch::upsert);
+        batch.flush();
+
+        log.info("Refreshed area ({}, {}) since {}: {} upserted", lat, lon, since, batch.upserted);
+        return new IngestionResult(batch.upserted, batch.deleted, batch.skipped);
+    }
+
+    private List<ChangeElement> parseChangeFile(InputStream xml) {
+        XMLInputFactory factory = XMLInputFactory.newFactory();
+        factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+        factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+
+        List<ChangeElement> elements = new ArrayList<>();
+        XMLStreamReader reader = null;
+        try {
+            reader = factory.createXMLStreamReader(xml);
+            String action = null;
+            ChangeElement current = null;
+            boolean sawRoot = false;
+
+            while (reader.hasNext()) {
+                int event = reader.next();
+                if (event == XMLStreamConstants.START_ELEMENT) {
+                    String tag = reader.getLocalName();
+                    switch (tag) {
+                        case "osmChange":
+                            sawRoot = true;
+                            break;
+                        case "create":
+                        case "modify":
+                        case "delete":
+                            action = tag;
+                            break;
+                        case "node":
+                        case "way":
+                        case "relation":
+                            if (action == null) {
+                                throw new ValidationException("Element " + tag + " outside of a create/modify/delete block");
+                            }
+                            current = new ChangeElement(action, tag, Long.parseLong(reader.getAttributeValue(null, "id")));
+                            String latAttr = reader.getAttributeValue(null, "lat");
+                            String lonAttr = reader.getAttributeValue(null, "lon");
+                            if (latAttr != null && lonAttr != null) {
+                                current.lat = Double.parseDouble(latAttr);
+                                current.lon = Double.parseDouble(lonAttr);
+                            }
+                            break;
+                        case "tag":
+                            if (current != null) {
+                                current.tags.put(reader.getAttributeValue(null, "k"), reader.getAttributeValue(null, "v"));
+                            }
+                            break;
+                        case "nd":
+                            if (current != null) {
+                                current.nodeRefs.add(Long.parseLong(reader.getAttributeValue(null, "ref")));
+                            }
+                            break;
+                        default:
+                            break;
+                    }
+                } else if (event == XMLStreamConstants.END_ELEMENT) {
+                    String tag = reader.getLocalName();
+                    if (current != null && tag.equals(current.type)) {
+                        elements.add(current);
+                        current = null;
+                    } else if (tag.equals(action)) {
+                        action = null;
+                    }
+                }
+            }
+
+            if (!sawRoot) {
+                throw new ValidationException("Not an osmChange document");
+            }
+            return elements;
+        } catch (XMLStreamException | NumberFormatException e) {
+            throw new ValidationException("Invalid osmChange document: " + e.getMessage());
+        } finally {
+            if (reader != null) {
+                try {
+                    reader.close();
+                } catch (XMLStreamException e) {
+                    log.debug("Failed to close osmChange reader: {}", e.getMessage());
+                }
+            }
+        }
+    }
+
+    // Pending writes, flushed in bounded chunks; a later action on the same element wins
+    private class ChangeBatch {
+        private final Map<String, Resource> pendingUpserts = new LinkedHashMap<>();
+        private final Set<String> pendingDeletes = new LinkedHashSet<>();
+        private int upserted;
+        private int deleted;
+        private int skipped;
+
+        void upsert(Resource resource) {
+            pendingDeletes.remove(resource.getOsmId());
+            pendingUpserts.put(resource.getOsmId(), resource);
+            flushIfFull();
+        }
+
+        void delete(String osmId) {
+            pendingUpserts.remove(osmId);
+            pendingDeletes.add(osmId);
+            flushIfFull();
+        }
+
+        private void flushIfFull() {
+            if (pendingUpserts.size() + pendingDeletes.size() >= BATCH_SIZE) {
+                flush();
+            }
+        }
+
+        void flush() {
+            // Elements the service rejected as invalid count as skipped
+            int saved = resourceService.upsertOsmResources(new ArrayList<>(pendingUpserts.values())).size();
+            upserted += saved;
+            skipped += pendingUpserts.size() - saved;
+            deleted += resourceService.deleteOsmResources(pendingDeletes).size();
+            pendingUpserts.clear();
+            pendingDeletes.clear();
+        }
+    }
+
+    private static class ChangeElement {
+        private final String action;
+        private final String type;
+        private final long id;
+        private Double lat;
+        private Double lon;
+        private final Map<String, Object> tags = new HashMap<>();
+        private final List<Long> nodeRefs = new ArrayList<>();
+
+        ChangeElement(String action, String type, long id) {
+            this.action = action;
+            this.type = type;
+            this.id = id;
+        }
+
+        // Same shape as an Overpass JSON element so the shared mapper can read it
+        Map<String, Object> toOverpassShape(Map<Long, double[]> nodeCoordinates) {
+            Map<String, Object> element = new HashMap<>();
+            element.put("type", type);
+            element.put("id", id);
+            element.put("tags", tags);
+            if (lat != null) {
+                element.put("lat", lat);
+                element.put("lon", lon);
+            } else {
+                double latSum = 0;
+                double lonSum = 0;
+                int resolved = 0;
+                for (Long ref : nodeRefs) {
+                    double[] coords = nodeCoordinates.get(ref);
+                    if (coords != null) {
+                        latSum += coords[0];
+                        lonSum += coords[1];
+                        resolved++;
+                    }
+                }
+                if (resolved > 0) {
+                    element.put("center", Map.of("lat", latSum / resolved, "lon", lonSum / resolved));
+                }
+            }
+            return element;
+        }
+    }
+}
@@ -0,0 +1,185 @@
+package com.example.communitymap.service;
+
+import com.example.communitymap.model.Resource;
+import org.springframework.data.mongodb.core.geo.GeoJsonPoint;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Maps OpenStreetMap elements (Overpass JSON shape: type, id, lat/lon or center, tags)
+ * to {@link Resource} documents. Shared by the Overpass client and the change ingestion.
+ */
+@Component
+public class OverpassElementMapper {
+
+    // Amenity values we track, kept in sync with the Overpass query
+    public static final Set<String> TRACKED_AMENITIES = Set.of(
+        "library", "hospital", "clinic", "doctors", "pharmacy", "food_bank", "social_facility"
+    );
+
+    /**
+     * Build the stable OSM key used to match resources across refreshes, e.g. "node/123"
+     */
+    public static String osmKey(Object type, Object id) {
+        if (type == null || id == null) {
+            return null;
+        }
+        String idStr = id instanceof Number ? String.valueOf(((Number) id).longValue()) : id.toString();
+        return type + "/" + idStr;
+    }
+
+    public boolean isTracked(Map<String, Object> tags) {
+        // Set.of rejects null lookups, so elements without an amenity tag are checked first
+        return tags != null && tags.get("amenity") instanceof String amenity && TRACKED_AMENITIES.contains(amenity);
+    }
+
+    @SuppressWarnings("unchecked")
+    public Resource toResource(Map<String, Object> element, String defaultType) {
+        Resource resource = new Resource();
+        resource.setOsmId(osmKey(element.get("type"), element.get("id")));
+
+        // Extract coordinates
+        Object latObj = element.get("lat");
+        Object lonObj = element.get("lon");
+
+        if (latObj instanceof Number && lonObj instanceof Number) {
+            double lat = ((Number) latObj).doubleValue();
+            double lon = ((Number) lonObj).doubleValue();
+            resource.setLocation(new GeoJsonPoint(lon, lat));
+        } else {
+            // Try center coordinates for ways/relations
+            Object centerObj = element.get("center");
+            if (centerObj instanceof Map) {
+                Map<String, Object> center = (Map<String, Object>) centerObj;
+                Object centerLat = center.get("lat");
+                Object centerLon = center.get("lon");
+                if (centerLat instanceof Number && centerLon instanceof Number) {
+                    double lat = ((Number) centerLat).doubleValue();
+                    double lon = ((Number) centerLon).doubleValue();
+                    resource.setLocation(new GeoJsonPoint(lon, lat));
+                } else {
+                    return null; // Skip if no valid coordinates
+                }
+            } else {
+                return null; // Skip if no valid coordinates
+            }
+        }
+
+        // Extract tags
+        Object tagsObj = element.get("tags");
+        if (tagsObj instanceof Map) {
+            Map<String, Object> tags = (Map<String, Object>) tagsObj;
+
+            // Set name
+            String name = extractName(tags);
+            resource.setName(name);
+
+            // Set type based on amenity
+            String type = determineResourceType(tags, defaultType);
+            resource.setType(type);
+
+            // Set address
+            String address = extractAddress(tags);
+            resource.setAddress(address);
+        } else {
+            // Fallback if no tags
+            resource.setName("Unknown " + defaultType);
+            resource.setType(defaultType);
+            resource.setAddress("Address not available");
+        }
+
+        return resource;
+    }
+
+    private String extractName(Map<String, Object> tags) {
+        // Try different name fields in order of preference
+        String[] nameFields = {"name", "brand", "operator", "ref", "official_name", "alt_name", "short_name", "local_name", "int_name"};
+        for (String field : nameFields) {
+            Object value = tags.get(field);
+            if (value instanceof String && !((String) value).trim().isEmpty()) {
+                return ((String) value).trim();
+            }
+        }
+
+        // If no name found, try to create a descriptive name based on amenity
+        Object amenity = tags.get("amenity");
+        if (amenity instanceof String) {
+            String amenityStr = (String) amenity;
+            switch (amenityStr) {
+                case "library":
+                    return "Public Library";
+                case "hospital":
+                    return "Hospital";
+                case "clinic":
+                    return "Medical Clinic";
+                case "doctors":
+                    return "Doctor's Office";
+                case "pharmacy":
+                    return "Pharmacy";
+                case "food_bank":
+                    return "Food Bank";
+                case "social_facility":
+                    return "Social Services";
+                default:
+                    return "Community Resource";
+            }
+        }
+
+        return "Community Resource";
+    }
+
+    private String determineResourceType(Map<String, Object> tags, String defaultType) {
+        Object amenity = tags.get("amenity");
+        if (amenity instanceof String) {
+            String amenityStr = (String) amenity;
+            switch (amenityStr) {
+                case "library":
+                    return "LIBRARY";
+                case "hospital":
+                    return "HOSPITAL";
+                case "clinic":
+                case "doctors":
+                    return "CLINIC";
+                case "pharmacy":
+                    return "PHARMACY";
+                case "food_bank":
+                    return "FOOD_BANK";
+                case "social_facility":
+                    return "SOCIAL_FACILITY";
+                default:
+                    return defaultType;
+            }
+        }
+        return defaultType;
+    }
+
+    private String extractAddress(Map<String, Object> tags) {
+        StringBuilder address = new StringBuilder();
+
+        // Try to build address from available fields
+        String[] addressFields = {"addr:housenumber", "addr:street", "addr:city", "addr:state", "addr:postcode"};
+        for (String field : addressFields) {
+            Object value = tags.get(field);
+            if (value instanceof String && !((String) value).trim().isEmpty()) {
+                if (address.length() > 0) {
+                    address.append(" ");
+                }
+                address.append((String) value);
+            }
+        }
+
+        if (address.length() == 0) {
+            // Fallback to any address-like field
+            Object addrValue = tags.get("addr:full");
+            if (addrValue instanceof String && !((String) addrValue).trim().isEmpty()) {
+                address.append((String) addrValue);
+            } else {
+                address.append("Address not available");
+            }
+        }
+
+        return address.toString();
+    }
+}
@@ -0,0 +1,87 @@
+package com.example.communitymap.service;
+
+import java.util.Arrays;
+
+/**
+ * Health and latency bookkeeping for one Overpass endpoint
+ */
+public class OverpassMirror {
+
+    private static final int SAMPLE_SIZE = 100;
+    private static final int MIN_SAMPLES = 10;
+
+    private final String url;
+    private final long[] latencySamples = new long[SAMPLE_SIZE];
+    private int sampleCount;
+    private int nextSample;
+    private int consecutiveFailures;
+    private int consecutiveAbandons;
+    private long ejectedUntil;
+
+    public OverpassMirror(String url) {
+        this.url = url;
+    }
+
+    public String getUrl() {
+        return url;
+    }
+
+    public synchronized void recordSuccess(long latencyMs) {
+        addSample(latencyMs);
+        consecutiveFailures = 0;
+        consecutiveAbandons = 0;
+        ejectedUntil = 0;
+    }
+
+    /**
+     * A request abandoned because another mirror answered first. Its elapsed time is only a
+     * lower bound on this mirror's latency, so it stays out of the percentile, which it would
+     * pull down; losing counts against the ranking instead.
+     */
+    public synchronized void recordAbandoned() {
+        consecutiveAbandons++;
+    }
+
+    private void addSample(long latencyMs) {
+        latencySamples[nextSample] = latencyMs;
+        nextSample = (nextSample + 1) % SAMPLE_SIZE;
+        sampleCount = Math.min(sampleCount + 1, SAMPLE_SIZE);
+    }
+
+    /**
+     * Count a failure; after maxFailures in a row the mirror is ejected for ejectMs
+     */
+    public synchronized void recordFailure(int maxFailures, long ejectMs, long now) {
+        consecutiveFailures++;
+        if (consecutiveFailures >= maxFailures) {
+            ejectedUntil = now + ejectMs;
+        }
+    }
+
+    public synchronized boolean isEjected(long now) {
+        return ejectedUntil > now;
+    }
+
+    public synchronized long getEjectedUntil() {
+        return ejectedUntil;
+    }
+
+    /**
+     * 95th percentile of recent successful latencies, or the fallback until enough samples exist
+     */
+    public synchronized long p95(long fallbackMs) {
+        if (sampleCount < MIN_SAMPLES) {
+            return fallbackMs;
+        }
+        long[] sorted = Arrays.copyOf(latencySamples, sampleCount);
+        Arrays.sort(sorted);
+        return sorted[(int) Math.ceil(sampleCount * 0.95) - 1];
+    }
+
+    /**
+     * Lower is better: recent tail latency, penalized by failures and lost hedges in a row
+     */
+    public synchronized long score(long fallbackMs) {
+        return p95(fallbackMs) * (1L + consecutiveFailures + consecutiveAbandons);
+    }
+}
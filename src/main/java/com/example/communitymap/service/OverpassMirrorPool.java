@@ -0,0 +1,87 @@
+package com.example.communitymap.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * The configured Overpass mirrors, ranked by health. Mirrors that fail repeatedly are
+ * ejected for a while and tried again once the ejection expires.
+ */
+@Component
+@Slf4j
+public class OverpassMirrorPool {
+
+    // Never hedge sooner than this, even for a mirror that is usually very fast
+    private static final long MIN_HEDGE_DELAY_MS = 100;
+
+    private final List<OverpassMirror> mirrors;
+    private final long defaultLatencyMs;
+    private final int maxFailures;
+    private final long ejectMs;
+
+    public OverpassMirrorPool(@Value("${overpass.api.urls:${overpass.api.url:https://overpass-api.de/api/interpreter}}") String urls,
+                              @Value("${overpass.hedge.default-delay-ms:2000}") long defaultLatencyMs,
+                              @Value("${overpass.mirror.max-failures:3}") int maxFailures,
+                              @Value("${overpass.mirror.eject-ms:30000}") long ejectMs) {
+        this.mirrors = Arrays.stream(urls.split(","))
+            .map(String::trim)
+            .filter(url -> !url.isEmpty())
+            .distinct()
+            .map(OverpassMirror::new)
+            .toList();
+        if (mirrors.isEmpty()) {
+            throw new IllegalStateException("At least one Overpass URL must be configured");
+        }
+        this.defaultLatencyMs = defaultLatencyMs;
+        this.maxFailures = maxFailures;
+        this.ejectMs = ejectMs;
+        log.info("Overpass mirrors: {}", mirrors.stream().map(OverpassMirror::getUrl).toList());
+    }
+
+    /**
+     * Healthy mirrors, best first. If every mirror is ejected, the one whose ejection
+     * ends soonest is returned so requests still have somewhere to go.
+     */
+    public List<OverpassMirror> rankedMirrors() {
+        long now = System.currentTimeMillis();
+        List<OverpassMirror> healthy = mirrors.stream()
+            .filter(mirror -> !mirror.isEjected(now))
+            .sorted(Comparator.comparingLong(mirror -> mirror.score(defaultLatencyMs)))
+            .toList();
+        if (!healthy.isEmpty()) {
+            return healthy;
+        }
+        return mirrors.stream()
+            .min(Comparator.comparingLong(OverpassMirror::getEjectedUntil))
+            .map(List::of)
+            .orElseThrow();
+    }
+
+    /**
+     * How long to wait on a mirror before hedging to the next one
+     */
+    public long hedgeDelayMs(OverpassMirror mirror) {
+        return Math.max(MIN_HEDGE_DELAY_MS, mirror.p95(defaultLatencyMs));
+    }
+
+    public void recordSuccess(OverpassMirror mirror, long latencyMs) {
+        mirror.recordSuccess(latencyMs);
+    }
+
+    public void recordAbandoned(OverpassMirror mirror) {
+        mirror.recordAbandoned();
+    }
+
+    public void recordFailure(OverpassMirror mirror) {
+        long now = System.currentTimeMillis();
+        mirror.recordFailure(maxFailures, ejectMs, now);
+        if (mirror.isEjected(now)) {
+            log.warn("Ejecting Overpass mirror {} for {} ms", mirror.getUrl(), ejectMs);
+        }
+    }
+}
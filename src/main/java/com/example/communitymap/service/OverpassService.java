@@ -1,86 +1,482 @@
 package com.example.communitymap.service;
 
+import com.example.communitymap.exception.UpstreamUnavailableException;
 import com.example.communitymap.model.Resource;
+import com.example.communitymap.util.Geohash;
+import com.example.communitymap.util.RequestTimings;
+import jakarta.annotation.PreDestroy;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.cache.annotation.Cacheable;
+import org.springframework.boot.system.JavaVersion;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
 import org.springframework.http.HttpEntity;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpMethod;
 import org.springframework.http.ResponseEntity;
+import org.springframework.http.client.JdkClientHttpRequestFactory;
 import org.springframework.stereotype.Service;
 import org.springframework.web.client.RestTemplate;
 
+import java.net.http.HttpClient;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
 
 @Service
 @Slf4j
 public class OverpassService {
     
-    private final RestTemplate restTemplate;
+    private static final String CACHE_NAME = "allResources";
+    private static final double EARTH_RADIUS_KM = 6371.0;
     
-    @Value("${overpass.api.url:https://overpass-api.de/api/interpreter}")
-    private String overpassApiUrl;
+    private final long connectTimeoutMs;
+    private final long readTimeoutMs;
+    // Built on the first upstream call; nodes answering from Redis or the tile store never need it
+    private volatile RestTemplate restTemplate;
+    private final OverpassElementMapper elementMapper;
+    private final CacheInvalidationService cacheInvalidationService;
+    private final CacheManager cacheManager;
+    private final OverpassTileStore tileStore;
+    private final AreaFetchCoordinator areaFetchCoordinator;
     
-    public OverpassService() {
-        this.restTemplate = new RestTemplate();
+    private final OverpassMirrorPool mirrorPool;
+    // Runs mirror calls so a hedged second request can start while the first is still pending
+    private final Executor hedgeExecutor;
+    // Geohash precision of the tiles Overpass results are fetched and cached by
+    private final int tilePrecision;
+    
+    public OverpassService(OverpassElementMapper elementMapper,
+                           CacheInvalidationService cacheInvalidationService,
+                           CacheManager cacheManager,
+                           OverpassTileStore tileStore,
+                           AreaFetchCoordinator areaFetchCoordinator,
+                           OverpassMirrorPool mirrorPool,
+                           @Value("${overpass.api.connect-timeout:5000}") long connectTimeoutMs,
+                           @Value("${overpass.api.timeout:25000}") long readTimeoutMs,
+                           @Value("${overpass.hedge.pool-size:32}") int hedgePoolSize,
+                           @Value("${overpass.tile-precision:5}") int tilePrecision,
+                           @Value("${spring.threads.virtual.enabled:false}") boolean virtualThreads) {
+        this.connectTimeoutMs = connectTimeoutMs;
+        this.readTimeoutMs = readTimeoutMs;
+        this.elementMapper = elementMapper;
+        this.cacheInvalidationService = cacheInvalidationService;
+        this.cacheManager = cacheManager;
+        this.tileStore = tileStore;
+        this.areaFetchCoordinator = areaFetchCoordinator;
+        this.mirrorPool = mirrorPool;
+        this.tilePrecision = tilePrecision;
+        // Same condition under which Boot runs Tomcat on virtual threads
+        if (virtualThreads && JavaVersion.getJavaVersion().isEqualOrNewerThan(JavaVersion.TWENTY_ONE)) {
+            // A virtual thread per call; blocked mirror calls cost no platform thread
+            SimpleAsyncTaskExecutor executor = new SimpleAsyncTaskExecutor("overpass-");
+            executor.setVirtualThreads(true);
+            this.hedgeExecutor = executor;
+        } else {
+            // Bounded: once every thread is busy, the calling request runs the mirror call itself,
+            // which only costs the hedge for that call
+            AtomicInteger threadCount = new AtomicInteger();
+            ThreadPoolExecutor executor = new ThreadPoolExecutor(hedgePoolSize, hedgePoolSize, 60, TimeUnit.SECONDS,
+                new SynchronousQueue<>(), runnable -> {
+                    Thread thread = new Thread(runnable, "overpass-" + threadCount.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                }, new ThreadPoolExecutor.CallerRunsPolicy());
+            executor.allowCoreThreadTimeOut(true);
+            this.hedgeExecutor = executor;
+        }
+    }
+    
+    @PreDestroy
+    void shutdown() {
+        if (hedgeExecutor instanceof ExecutorService executorService) {
+            executorService.shutdownNow();
+        } else if (hedgeExecutor instanceof SimpleAsyncTaskExecutor executor) {
+            executor.close();
+        }
+    }
+    
+    private RestTemplate restTemplate() {
+        RestTemplate client = restTemplate;
+        if (client == null) {
+            synchronized (this) {
+                client = restTemplate;
+                if (client == null) {
+                    // JDK HttpClient parks instead of pinning when called from virtual threads
+                    HttpClient httpClient = HttpClient.newBuilder()
+                            .connectTimeout(Duration.ofMillis(connectTimeoutMs))
+                            .build();
+                    JdkClientHttpRequestFactory requestFactory = new JdkClientHttpRequestFactory(httpClient);
+                    requestFactory.setReadTimeout(Duration.ofMillis(readTimeoutMs));
+                    client = new RestTemplate(requestFactory);
+                    restTemplate = client;
+                }
+            }
+        }
+        return client;
     }
     
     // Individual methods removed - using combined query for better performance
     
     /**
      * Fetch all community resources from OpenStreetMap using Overpass API
-     * Optimized single query approach for better performance - manual updates only
+     * Fetched and cached per geohash tile, so nearby and overlapping searches share entries;
+     * only the tiles missing from the cache go upstream, together in one query
      */
-    @Cacheable(value = "allResources", key = "#lat + '_' + #lon + '_' + #radiusKm")
     public List<Resource> fetchAllResources(double lat, double lon, double radiusKm) {
         // Limit radius to prevent excessive data fetching
         double limitedRadius = Math.min(radiusKm, 5.0); // Max 5km radius
-        String query = buildCombinedQuery(lat, lon, limitedRadius);
+        Map<String, List<Resource>> tiles = new LinkedHashMap<>();
+        List<String> missing = new ArrayList<>();
+        for (String tile : Geohash.cover(lat, lon, limitedRadius, tilePrecision)) {
+            List<Resource> cached = cachedTile(tile);
+            if (cached != null) {
+                tiles.put(tile, cached);
+            } else {
+                missing.add(tile);
+            }
+        }
+        if (!missing.isEmpty()) {
+            // Only each tile's owner in the cluster goes upstream
+            tiles.putAll(loadTiles(missing, toFetch -> areaFetchCoordinator.fetch(toFetch, this::fetchUpstreamTiles)));
+        }
+        return withinRadius(tiles.values(), lat, lon, limitedRadius);
+    }
+    
+    /**
+     * The given tiles on behalf of a peer that forwarded tiles owned by this node; never
+     * forwards again, so nodes with briefly different member lists cannot loop
+     */
+    public Map<String, List<Resource>> fetchOwnedTiles(Collection<String> tiles) {
+        Map<String, List<Resource>> result = new LinkedHashMap<>();
+        List<String> missing = new ArrayList<>();
+        for (String tile : tiles) {
+            List<Resource> cached = cachedTile(tile);
+            if (cached != null) {
+                result.put(tile, cached);
+            } else {
+                missing.add(tile);
+            }
+        }
+        if (!missing.isEmpty()) {
+            result.putAll(loadTiles(missing, toFetch -> areaFetchCoordinator.fetchAsOwner(toFetch, this::fetchUpstreamTiles)));
+        }
+        return result;
+    }
+    
+    /**
+     * Load tiles missing from the allResources cache and cache them. Entries are indexed by
+     * tile before loading, so a write to a tile during the load finds it; if such a write
+     * evicted the tile before the result was cached, the result is dropped again afterwards.
+     * Tiles that could not be fetched are left out of the result.
+     */
+    private Map<String, List<Resource>> loadTiles(List<String> tiles, Function<Collection<String>, Map<String, List<Resource>>> fetcher) {
+        tiles.forEach(tile -> cacheInvalidationService.registerTileEntry(CACHE_NAME, tileCacheKey(tile), tile));
+        Map<String, List<Resource>> loaded = new LinkedHashMap<>();
+        List<String> toFetch = new ArrayList<>();
+        long start = System.nanoTime();
+        for (String tile : tiles) {
+            // A Redis miss may still be on local disk from before a restart or flush
+            List<Resource> stored = tileStore.get(tileCacheKey(tile));
+            if (stored != null) {
+                loaded.put(tile, stored);
+            } else {
+                toFetch.add(tile);
+            }
+        }
+        RequestTimings.record("tile_store", start);
+        if (!toFetch.isEmpty()) {
+            try {
+                Map<String, List<Resource>> fetched = fetcher.apply(toFetch);
+                fetched.forEach((tile, resources) -> tileStore.put(tileCacheKey(tile), tile, resources));
+                loaded.putAll(fetched);
+            } catch (Exception e) {
+                log.error("Error fetching tiles {} from Overpass API: {}", toFetch, e.getMessage());
+            }
+        }
+        
+        Cache cache = null;
+        try {
+            cache = cacheManager.getCache(CACHE_NAME);
+        } catch (Exception e) {
+            log.warn("Could not write allResources cache: {}", e.getMessage());
+        }
+        for (Map.Entry<String, List<Resource>> entry : loaded.entrySet()) {
+            String key = tileCacheKey(entry.getKey());
+            try {
+                if (cache != null) {
+                    cache.put(key, entry.getValue());
+                }
+            } catch (Exception e) {
+                log.warn("Could not write allResources cache: {}", e.getMessage());
+            }
+            if (!cacheInvalidationService.confirmTileEntry(CACHE_NAME, key, entry.getKey())) {
+                log.debug("Tile {} changed while loading, not keeping it cached", entry.getKey());
+                tileStore.remove(key);
+            }
+        }
+        return loaded;
+    }
+    
+    /**
+     * All resources in the given tiles, from one query over their joint bounding box, by tile.
+     * Every requested tile is in the result, empty if it has no resources; throws if the
+     * query failed, so a failure is never cached as an empty tile.
+     */
+    private Map<String, List<Resource>> fetchUpstreamTiles(Collection<String> tiles) {
+        double[] box = {90, 180, -90, -180};
+        Map<String, List<Resource>> byTile = new LinkedHashMap<>();
+        for (String tile : tiles) {
+            double[] bounds = Geohash.bounds(tile);
+            box[0] = Math.min(box[0], bounds[0]);
+            box[1] = Math.min(box[1], bounds[1]);
+            box[2] = Math.max(box[2], bounds[2]);
+            box[3] = Math.max(box[3], bounds[3]);
+            byTile.put(tile, new ArrayList<>());
+        }
+        
+        String query = buildBoxQuery(box[0], box[1], box[2], box[3]);
+        for (Resource resource : executeOverpassQuery(query, "ALL")) {
+            if (resource.getLocation() == null) {
+                continue;
+            }
+            // The joint box also covers tiles that were not asked for
+            List<Resource> tileResources = byTile.get(Geohash.encode(resource.getLocation().getY(), resource.getLocation().getX(), tilePrecision));
+            if (tileResources != null) {
+                tileResources.add(resource);
+            }
+        }
+        return byTile;
+    }
+    
+    /**
+     * The cached result of {@link #fetchAllResources} for these arguments, from Redis or the
+     * local tile store, or null if any of its tiles is not cached. Never goes upstream.
+     */
+    public List<Resource> peekAllResources(double lat, double lon, double radiusKm) {
+        double limitedRadius = Math.min(radiusKm, 5.0);
+        List<List<Resource>> tiles = new ArrayList<>();
+        for (String tile : Geohash.cover(lat, lon, limitedRadius, tilePrecision)) {
+            List<Resource> cached = cachedTile(tile);
+            if (cached == null) {
+                cached = tileStore.get(tileCacheKey(tile));
+            }
+            if (cached == null) {
+                return null;
+            }
+            tiles.add(cached);
+        }
+        return withinRadius(tiles, lat, lon, limitedRadius);
+    }
+    
+    @SuppressWarnings("unchecked")
+    private List<Resource> cachedTile(String tile) {
+        try {
+            Cache cache = cacheManager.getCache(CACHE_NAME);
+            Cache.ValueWrapper cached = cache != null ? cache.get(tileCacheKey(tile)) : null;
+            if (cached != null) {
+                return (List<Resource>) cached.get();
+            }
+        } catch (Exception e) {
+            log.warn("Could not read allResources cache: {}", e.getMessage());
+        }
+        return null;
+    }
+    
+    // The tiles cover the circle's bounding box; keep only what lies in the circle itself
+    private static List<Resource> withinRadius(Collection<List<Resource>> tiles, double lat, double lon, double radiusKm) {
+        List<Resource> resources = new ArrayList<>();
+        for (List<Resource> tile : tiles) {
+            for (Resource resource : tile) {
+                if (resource.getLocation() != null
+                        && distanceKm(lat, lon, resource.getLocation().getY(), resource.getLocation().getX()) <= radiusKm) {
+                    resources.add(resource);
+                }
+            }
+        }
+        return resources;
+    }
+    
+    private static double distanceKm(double lat1, double lon1, double lat2, double lon2) {
+        double dLat = Math.toRadians(lat2 - lat1);
+        double dLon = Math.toRadians(lon2 - lon1);
+        double a = Math.sin(dLat / 2) * Math.sin(dLat / 2)
+            + Math.cos(Math.toRadians(lat1)) * Math.cos(Math.toRadians(lat2)) * Math.sin(dLon / 2) * Math.sin(dLon / 2);
+        return 2 * EARTH_RADIUS_KM * Math.asin(Math.sqrt(a));
+    }
+    
+    /**
+     * Key of an allResources entry, one per geohash tile
+     */
+    static String tileCacheKey(String tile) {
+        return "tile:" + tile;
+    }
+    
+    /**
+     * Key of an allResources entry for a whole area, as cached by the reactive API
+     */
+    static String areaCacheKey(double lat, double lon, double radiusKm) {
+        return lat + "_" + lon + "_" + radiusKm;
+    }
+    
+    /**
+     * Fetch only the elements in the area that changed upstream since the given instant,
+     * using the Overpass (newer:...) filter. Deletions are not reported by this filter.
+     */
+    public List<Resource> fetchChangedResources(double lat, double lon, double radiusKm, Instant since) {
+        double limitedRadius = Math.min(radiusKm, 5.0);
+        String query = buildCombinedQuery(lat, lon, limitedRadius, "(newer:\"" + since.truncatedTo(ChronoUnit.SECONDS) + "\")");
         return executeOverpassQuery(query, "ALL");
     }
     
     // Individual query methods removed - using combined query for better performance
     
-    private String buildCombinedQuery(double lat, double lon, double radiusKm) {
+    static String buildCombinedQuery(double lat, double lon, double radiusKm) {
+        return buildCombinedQuery(lat, lon, radiusKm, "");
+    }
+    
+    private static String buildCombinedQuery(double lat, double lon, double radiusKm, String extraFilter) {
         return String.format("""
             [out:json][timeout:30];
             (
-              node["amenity"~"^(library|hospital|clinic|doctors|pharmacy|food_bank|social_facility)$"](around:%d,%f,%f);
-              way["amenity"~"^(library|hospital|clinic|doctors|pharmacy|food_bank|social_facility)$"](around:%d,%f,%f);
-              relation["amenity"~"^(library|hospital|clinic|doctors|pharmacy|food_bank|social_facility)$"](around:%d,%f,%f);
+              node["amenity"~"^(library|hospital|clinic|doctors|pharmacy|food_bank|social_facility)$"](around:%d,%f,%f)%s;
+              way["amenity"~"^(library|hospital|clinic|doctors|pharmacy|food_bank|social_facility)$"](around:%d,%f,%f)%s;
+              relation["amenity"~"^(library|hospital|clinic|doctors|pharmacy|food_bank|social_facility)$"](around:%d,%f,%f)%s;
             );
             out center;
             """, 
-            (int)(radiusKm * 1000), lat, lon,
-            (int)(radiusKm * 1000), lat, lon,
-            (int)(radiusKm * 1000), lat, lon
+            (int)(radiusKm * 1000), lat, lon, extraFilter,
+            (int)(radiusKm * 1000), lat, lon, extraFilter,
+            (int)(radiusKm * 1000), lat, lon, extraFilter
         );
     }
     
+    static String buildBoxQuery(double south, double west, double north, double east) {
+        String box = String.format("(%f,%f,%f,%f)", south, west, north, east);
+        return String.format("""
+            [out:json][timeout:30];
+            (
+              node["amenity"~"^(library|hospital|clinic|doctors|pharmacy|food_bank|social_facility)$"]%s;
+              way["amenity"~"^(library|hospital|clinic|doctors|pharmacy|food_bank|social_facility)$"]%s;
+              relation["amenity"~"^(library|hospital|clinic|doctors|pharmacy|food_bank|social_facility)$"]%s;
+            );
+            out center;
+            """, box, box, box);
+    }
+    
+    // Throws if every mirror failed, so callers never mistake an outage for an empty result
     private List<Resource> executeOverpassQuery(String query, String defaultType) {
+        log.info("Executing Overpass query for type: {}", defaultType);
+        log.debug("Query: {}", query);
+        
+        Map<String, Object> response;
+        long start = System.nanoTime();
         try {
-            log.info("Executing Overpass query for type: {}", defaultType);
-            log.debug("Query: {}", query);
-            
-            HttpHeaders headers = new HttpHeaders();
-            headers.set("User-Agent", "CommunityMap/1.0");
-            headers.set("Content-Type", "application/x-www-form-urlencoded");
-            
-            HttpEntity<String> entity = new HttpEntity<>(query, headers);
-            
-            ResponseEntity<Map<String, Object>> response = restTemplate.exchange(
-                    overpassApiUrl, HttpMethod.POST, entity, 
-                    new org.springframework.core.ParameterizedTypeReference<Map<String, Object>>() {});
-            
-            return parseOverpassResponse(response.getBody(), defaultType);
-            
-        } catch (Exception e) {
-            log.error("Error fetching data from Overpass API: {}", e.getMessage());
-            return new ArrayList<>();
+            response = executeHedged(query);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new UpstreamUnavailableException("Interrupted while querying Overpass", e);
+        } finally {
+            RequestTimings.record("overpass", start);
         }
+        return RequestTimings.time("overpass_map", () -> parseOverpassResponse(response, defaultType));
+    }
+    
+    /**
+     * Send the query to the healthiest mirror; if it has not answered within its p95 latency,
+     * send the same query to the next mirror and take whichever succeeds first. A fast failure
+     * moves on to the next mirror immediately.
+     */
+    private Map<String, Object> executeHedged(String query) throws InterruptedException {
+        List<OverpassMirror> mirrors = mirrorPool.rankedMirrors();
+        CompletionService<Map<String, Object>> completion = new ExecutorCompletionService<>(hedgeExecutor);
+        List<Future<Map<String, Object>>> inFlight = new ArrayList<>();
+        int nextMirror = 0;
+        Exception lastError = null;
+        AtomicBoolean settled = new AtomicBoolean();
+        
+        try {
+            inFlight.add(completion.submit(timedCall(mirrors.get(nextMirror++), query, settled)));
+            int pending = 1;
+            while (pending > 0) {
+                Future<Map<String, Object>> done;
+                if (nextMirror < mirrors.size()) {
+                    done = completion.poll(mirrorPool.hedgeDelayMs(mirrors.get(nextMirror - 1)), TimeUnit.MILLISECONDS);
+                    if (done == null) {
+                        log.debug("Hedging Overpass query to {}", mirrors.get(nextMirror).getUrl());
+                        inFlight.add(completion.submit(timedCall(mirrors.get(nextMirror++), query, settled)));
+                        pending++;
+                        continue;
+                    }
+                } else {
+                    done = completion.take();
+                }
+                pending--;
+                
+                try {
+                    return done.get();
+                } catch (ExecutionException e) {
+                    lastError = e.getCause() instanceof Exception ? (Exception) e.getCause() : e;
+                    if (pending == 0 && nextMirror < mirrors.size()) {
+                        inFlight.add(completion.submit(timedCall(mirrors.get(nextMirror++), query, settled)));
+                        pending++;
+                    }
+                }
+            }
+            throw new UpstreamUnavailableException("All Overpass mirrors failed: " + (lastError != null ? lastError.getMessage() : "no response"), lastError);
+        } finally {
+            // Abandon the slower request
+            settled.set(true);
+            inFlight.forEach(future -> future.cancel(true));
+        }
+    }
+    
+    private Callable<Map<String, Object>> timedCall(OverpassMirror mirror, String query, AtomicBoolean settled) {
+        return () -> {
+            long start = System.nanoTime();
+            try {
+                HttpHeaders headers = new HttpHeaders();
+                headers.set("User-Agent", "CommunityMap/1.0");
+                headers.set("Content-Type", "application/x-www-form-urlencoded");
+                
+                HttpEntity<String> entity = new HttpEntity<>(query, headers);
+                
+                ResponseEntity<Map<String, Object>> response = restTemplate().exchange(
+                        mirror.getUrl(), HttpMethod.POST, entity, 
+                        new org.springframework.core.ParameterizedTypeReference<Map<String, Object>>() {});
+                
+                mirrorPool.recordSuccess(mirror, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+                return response.getBody();
+            } catch (Exception e) {
+                // A hedged loser cancelled by the winner is slow, not broken
+                if (settled.get()) {
+                    mirrorPool.recordAbandoned(mirror);
+                } else {
+                    log.warn("Overpass mirror {} failed: {}", mirror.getUrl(), e.getMessage());
+                    mirrorPool.recordFailure(mirror);
+                }
+                throw e;
+            }
+        };
     }
     
     @SuppressWarnings("unchecked")
@@ -94,7 +490,7 @@ public class OverpassService {
                 
                 for (Map<String, Object> element : elements) {
                     try {
-                        Resource resource = parseOverpassElement(element, defaultType);
+                        Resource resource = elementMapper.toResource(element, defaultType);
                         if (resource != null) {
                             resources.add(resource);
                         }
@@ -108,151 +504,4 @@ public class OverpassService {
         log.info("Parsed {} resources of type {}", resources.size(), defaultType);
         return resources;
     }
-    
-    @SuppressWarnings("unchecked")
-    private Resource parseOverpassElement(Map<String, Object> element, String defaultType) {
-        Resource resource = new Resource();
-        
-        // Extract coordinates
-        Object latObj = element.get("lat");
-        Object lonObj = element.get("lon");
-        
-        if (latObj instanceof Number && lonObj instanceof Number) {
-            double lat = ((Number) latObj).doubleValue();
-            double lon = ((Number) lonObj).doubleValue();
-            resource.setLocation(new org.springframework.data.mongodb.core.geo.GeoJsonPoint(lon, lat));
-        } else {
-            // Try center coordinates for ways/relations
-            Object centerObj = element.get("center");
-            if (centerObj instanceof Map) {
-                Map<String, Object> center = (Map<String, Object>) centerObj;
-                Object centerLat = center.get("lat");
-                Object centerLon = center.get("lon");
-                if (centerLat instanceof Number && centerLon instanceof Number) {
-                    double lat = ((Number) centerLat).doubleValue();
-                    double lon = ((Number) centerLon).doubleValue();
-                    resource.setLocation(new org.springframework.data.mongodb.core.geo.GeoJsonPoint(lon, lat));
-                } else {
-                    return null; // Skip if no valid coordinates
-                }
-            } else {
-                return null; // Skip if no valid coordinates
-            }
-        }
-        
-        // Extract tags
-        Object tagsObj = element.get("tags");
-        if (tagsObj instanceof Map) {
-            Map<String, Object> tags = (Map<String, Object>) tagsObj;
-            
-            // Set name
-            String name = extractName(tags);
-            resource.setName(name);
-            
-            // Set type based on amenity
-            String type = determineResourceType(tags, defaultType);
-            resource.setType(type);
-            
-            // Set address
-            String address = extractAddress(tags);
-            resource.setAddress(address);
-        } else {
-            // Fallback if no tags
-            resource.setName("Unknown " + defaultType);
-            resource.setType(defaultType);
-            resource.setAddress("Address not available");
-        }
-        
-        return resource;
-    }
-    
-    private String extractName(Map<String, Object> tags) {
-        // Try different name fields in order of preference
-        String[] nameFields = {"name", "brand", "operator", "ref", "official_name", "alt_name", "short_name", "local_name", "int_name"};
-        for (String field : nameFields) {
-            Object value = tags.get(field);
-            if (value instanceof String && !((String) value).trim().isEmpty()) {
-                return ((String) value).trim();
-            }
-        }
-        
-        // If no name found, try to create a descriptive name based on amenity
-        Object amenity = tags.get("amenity");
-        if (amenity instanceof String) {
-            String amenityStr = (String) amenity;
-            switch (amenityStr) {
-                case "library":
-                    return "Public Library";
-                case "hospital":
-                    return "Hospital";
-                case "clinic":
-                    return "Medical Clinic";
-                case "doctors":
-                    return "Doctor's Office";
-                case "pharmacy":
-                    return "Pharmacy";
-                case "food_bank":
-                    return "Food Bank";
-                case "social_facility":
-                    return "Social Services";
-                default:
-                    return "Community Resource";
-            }
-        }
-        
-        return "Community Resource";
-    }
-    
-    private String determineResourceType(Map<String, Object> tags, String defaultType) {
-        Object amenity = tags.get("amenity");
-        if (amenity instanceof String) {
-            String amenityStr = (String) amenity;
-            switch (amenityStr) {
-                case "library":
-                    return "LIBRARY";
-                case "hospital":
-                    return "HOSPITAL";
-                case "clinic":
-                case "doctors":
-                    return "CLINIC";
-                case "pharmacy":
-                    return "PHARMACY";
-                case "food_bank":
-                    return "FOOD_BANK";
-                case "social_facility":
-                    return "SOCIAL_FACILITY";
-                default:
-                    return defaultType;
-            }
-        }
-        return defaultType;
-    }
-    
-    private String extractAddress(Map<String, Object> tags) {
-        StringBuilder address = new StringBuilder();
-        
-        // Try to build address from available fields
-        String[] addressFields = {"addr:housenumber", "addr:street", "addr:city", "addr:state", "addr:postcode"};
-        for (String field : addressFields) {
-            Object value = tags.get(field);
-            if (value instanceof String && !((String) value).trim().isEmpty()) {
-                if (address.length() > 0) {
-                    address.append(" ");
-                }
-                address.append((String) value);
-            }
-        }
-        
-        if (address.length() == 0) {
-            // Fallback to any address-like field
-            Object addrValue = tags.get("addr:full");
-            if (addrValue instanceof String && !((String) addrValue).trim().isEmpty()) {
-                address.append((String) addrValue);
-            } else {
-                address.append("Address not available");
-            }
-        }
-        
-        return address.toString();
-    }
 }
@@ -0,0 +1,549 @@
+package com.example.communitymap.service;
+
+import com.example.communitymap.model.Resource;
+import com.example.communitymap.util.Geohash;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.mongodb.core.geo.GeoJsonPoint;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.reflect.Field;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.zip.CRC32;
+
+/**
+ * Local on-disk copy of Overpass tile results, so a restarted node (or one behind a flushed
+ * Redis) starts warm instead of going upstream for every tile. Results are appended to a
+ * memory-mapped file, so the cached data lives in the page cache rather than on the heap;
+ * only a small key index is kept in memory and it is rebuilt by scanning the file on startup.
+ * Superseded, invalidated and expired records are dropped by compaction.
+ */
+@Component
+@Slf4j
+public class OverpassTileStore implements CellInvalidationListener {
+
+    private static final String FILE_NAME = "tiles.dat";
+    private static final int MAGIC = 0x54494C45; // "TILE"
+    private static final byte PUT = 1;
+    private static final byte DELETE = 2;
+    // magic, kind, writtenAt, key length, cells length, payload length; a CRC32 follows the body
+    private static final int HEADER_BYTES = 4 + 1 + 8 + 4 + 4 + 4;
+    private static final int CRC_BYTES = 4;
+
+    private final boolean enabled;
+    private final Path directory;
+    private final int capacity;
+    private final Duration ttl;
+    private final int precision;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Map<String, Entry> index = new HashMap<>();
+    private final Map<String, Set<String>> keysByCell = new HashMap<>();
+    private FileChannel channel;
+    private MappedByteBuffer buffer;
+    private int end;
+    private volatile boolean open;
+
+    public OverpassTileStore(@Value("${tile-store.enabled:true}") boolean enabled,
+                             @Value("${tile-store.dir:data/tile-store}") Path directory,
+                             @Value("${tile-store.max-size:256MB}") DataSize maxSize,
+                             @Value("${tile-store.ttl:${cache.all-resources.ttl:PT6H}}") Duration ttl,
+                             @Value("${cache.invalidation.geohash-precision:5}") int precision) {
+        this.enabled = enabled;
+        this.directory = directory;
+        // A single mapping is addressed with int offsets
+        this.capacity = (int) Math.min(maxSize.toBytes(), Integer.MAX_VALUE);
+        this.ttl = ttl;
+        this.precision = precision;
+    }
+
+    // Opened in the background; until then every lookup is a miss and writes are skipped
+    @EventListener(ApplicationReadyEvent.class)
+    void openInBackground() {
+        if (!enabled) {
+            return;
+        }
+        Thread opener = new Thread(this::open, "tile-store-open");
+        opener.setDaemon(true);
+        opener.start();
+    }
+
+    void open() {
+        lock.writeLock().lock();
+        try {
+            long start = System.currentTimeMillis();
+            Files.createDirectories(directory);
+            map(directory.resolve(FILE_NAME));
+            scan();
+            open = true;
+            log.info("Tile store {} opened in {} ms: {} tiles, {} of {} bytes used",
+                directory.resolve(FILE_NAME), System.currentTimeMillis() - start, index.size(), end, capacity);
+            if (liveBytes(System.currentTimeMillis()) < end / 2) {
+                compact(0);
+            }
+        } catch (IOException | RuntimeException e) {
+            log.warn("Tile store disabled, could not open {}: {}", directory, e.getMessage());
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * The stored resources for a tile key, or null if absent or older than the TTL
+     */
+    public List<Resource> get(String key) {
+        if (!open) {
+            return null;
+        }
+        byte[] payload;
+        lock.readLock().lock();
+        try {
+            if (!open) {
+                return null;
+            }
+            Entry entry = index.get(key);
+            if (entry == null || isExpired(entry, System.currentTimeMillis())) {
+                return null;
+            }
+            payload = new byte[entry.payloadLength];
+            buffer.get(entry.payloadOffset, payload);
+        } finally {
+            lock.readLock().unlock();
+        }
+        return decode(payload);
+    }
+
+    /**
+     * Store the resources of a geohash tile under its key, indexed by the invalidation cells it spans
+     */
+    public void put(String key, String tile, List<Resource> resources) {
+        if (!open) {
+            return;
+        }
+        Set<String> cells = Geohash.cellsOf(tile, precision);
+        byte[] payload = encode(resources);
+        lock.writeLock().lock();
+        try {
+            append(PUT, key, cells, payload);
+        } catch (IOException | RuntimeException e) {
+            log.warn("Failed to store tile {} in tile store: {}", key, e.getMessage());
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Drop the stored resources for a tile key, if any
+     */
+    public void remove(String key) {
+        if (!open) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            append(DELETE, key, Set.of(), new byte[0]);
+        } catch (IOException | RuntimeException e) {
+            log.warn("Failed to remove tile {} from tile store: {}", key, e.getMessage());
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void onCellsInvalidated(Set<String> cells) {
+        if (!open) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            Set<String> keys = new LinkedHashSet<>();
+            for (String cell : cells) {
+                keys.addAll(keysByCell.getOrDefault(cell, Set.of()));
+            }
+            // Tombstones, so the entries stay gone after a restart
+            for (String key : keys) {
+                append(DELETE, key, Set.of(), new byte[0]);
+            }
+            if (!keys.isEmpty()) {
+                log.debug("Tile store dropped {} tiles for cells {}", keys.size(), cells);
+            }
+        } catch (IOException | RuntimeException e) {
+            log.warn("Failed to invalidate tile store cells {}: {}", cells, e.getMessage());
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @PreDestroy
+    void close() {
+        lock.writeLock().lock();
+        try {
+            open = false;
+            if (buffer != null) {
+                buffer.force();
+                unmap(buffer);
+                buffer = null;
+            }
+            if (channel != null) {
+                channel.close();
+            }
+        } catch (IOException e) {
+            log.warn("Failed to close tile store: {}", e.getMessage());
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void map(Path file) throws IOException {
+        channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        // Mapping past the end grows the file sparsely; unwritten space takes no disk
+        buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, capacity);
+    }
+
+    // Rebuild the index from the log; a torn or corrupt record marks the end of valid data
+    private void scan() {
+        index.clear();
+        keysByCell.clear();
+        int position = 0;
+        while (position + HEADER_BYTES + CRC_BYTES <= capacity && buffer.getInt(position) == MAGIC) {
+            byte kind = buffer.get(position + 4);
+            long writtenAt = buffer.getLong(position + 5);
+            int keyLength = buffer.getInt(position + 13);
+            int cellsLength = buffer.getInt(position + 17);
+            int payloadLength = buffer.getInt(position + 21);
+            long bodyEnd = (long) position + HEADER_BYTES + keyLength + cellsLength + payloadLength;
+            if (keyLength < 0 || cellsLength < 0 || payloadLength < 0 || bodyEnd + CRC_BYTES > capacity
+                    || crc(position, (int) bodyEnd - position) != buffer.getInt((int) bodyEnd)) {
+                log.warn("Tile store record at {} is incomplete, discarding the rest of the file", position);
+                break;
+            }
+
+            int keyOffset = position + HEADER_BYTES;
+            String key = readString(keyOffset, keyLength);
+            int recordLength = (int) bodyEnd + CRC_BYTES - position;
+            if (kind == PUT) {
+                String cells = readString(keyOffset + keyLength, cellsLength);
+                Set<String> cellSet = cells.isEmpty() ? Set.of() : new HashSet<>(Arrays.asList(cells.split(",")));
+                index(key, new Entry(position, recordLength, keyOffset + keyLength + cellsLength, payloadLength, writtenAt, cellSet));
+            } else {
+                // A tombstone is only needed until compaction rewrites the file
+                unindex(key);
+            }
+            position += recordLength;
+        }
+        end = position;
+        clearTail();
+    }
+
+    private void append(byte kind, String key, Set<String> cells, byte[] payload) throws IOException {
+        // A failed compaction may have closed the store while this caller waited for the lock
+        if (!open || (kind == DELETE && !index.containsKey(key))) {
+            return;
+        }
+        byte[] keyBytes = key.getBytes(StandardCharsets.UTF_8);
+        byte[] cellBytes = String.join(",", cells).getBytes(StandardCharsets.UTF_8);
+        int recordLength = HEADER_BYTES + keyBytes.length + cellBytes.length + payload.length + CRC_BYTES;
+
+        if (end + recordLength > capacity) {
+            compact(recordLength);
+            if (end + recordLength > capacity) {
+                log.warn("Tile store full ({} bytes), not storing tile {}", capacity, key);
+                if (kind == DELETE) {
+                    unindex(key);
+                }
+                return;
+            }
+        }
+
+        int position = end;
+        long writtenAt = System.currentTimeMillis();
+        buffer.putInt(position, MAGIC);
+        buffer.put(position + 4, kind);
+        buffer.putLong(position + 5, writtenAt);
+        buffer.putInt(position + 13, keyBytes.length);
+        buffer.putInt(position + 17, cellBytes.length);
+        buffer.putInt(position + 21, payload.length);
+        int offset = position + HEADER_BYTES;
+        buffer.put(offset, keyBytes);
+        offset += keyBytes.length;
+        buffer.put(offset, cellBytes);
+        offset += cellBytes.length;
+        buffer.put(offset, payload);
+        int bodyEnd = offset + payload.length;
+        buffer.putInt(bodyEnd, crc(position, bodyEnd - position));
+        end = position + recordLength;
+        clearTail();
+
+        if (kind == PUT) {
+            index(key, new Entry(position, recordLength, offset, payload.length, writtenAt, cells));
+        } else {
+            unindex(key);
+        }
+    }
+
+    /**
+     * Rewrite the live, unexpired records into a fresh file and swap it in. If they would still
+     * leave less than the reserved bytes free, the oldest tiles are dropped, down to three
+     * quarters of capacity so the next appends do not compact again right away. If the new
+     * file cannot be swapped in, the store is closed and every lookup is a miss from then on.
+     */
+    private void compact(int reserve) throws IOException {
+        long start = System.currentTimeMillis();
+        int before = end;
+        Path file = directory.resolve(FILE_NAME);
+        Path compacted = directory.resolve(FILE_NAME + ".compact");
+        long now = System.currentTimeMillis();
+
+        try (FileChannel out = FileChannel.open(compacted, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            List<Entry> live = new ArrayList<>();
+            for (Entry entry : index.values()) {
+                if (!isExpired(entry, now)) {
+                    live.add(entry);
+                }
+            }
+            long keptBytes = live.stream().mapToLong(entry -> entry.recordLength).sum();
+            if (keptBytes + reserve > capacity) {
+                long budget = capacity * 3L / 4 - reserve;
+                live.sort((a, b) -> Long.compare(b.writtenAt, a.writtenAt));
+                keptBytes = 0;
+                int kept = 0;
+                while (kept < live.size() && keptBytes + live.get(kept).recordLength <= budget) {
+                    keptBytes += live.get(kept++).recordLength;
+                }
+                log.info("Tile store full, evicting {} oldest tiles", live.size() - kept);
+                live = new ArrayList<>(live.subList(0, kept));
+            }
+
+            live.sort((a, b) -> Integer.compare(a.recordOffset, b.recordOffset));
+            for (Entry entry : live) {
+                out.write(buffer.slice(entry.recordOffset, entry.recordLength));
+            }
+            out.force(true);
+        }
+
+        MappedByteBuffer previous = buffer;
+        try {
+            channel.close();
+            Files.move(compacted, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            map(file);
+        } catch (IOException | RuntimeException e) {
+            open = false;
+            buffer = null;
+            index.clear();
+            keysByCell.clear();
+            unmap(previous);
+            log.error("Tile store disabled, could not swap in the compacted file: {}", e.getMessage());
+            throw e;
+        }
+        // The replaced file is unlinked; unmapping releases its pages and disk space now rather than at GC
+        unmap(previous);
+        scan();
+        log.info("Compacted tile store from {} to {} bytes in {} ms", before, end, System.currentTimeMillis() - start);
+    }
+
+    // Safe because no view of the buffer is used outside the lock, and callers hold the write lock
+    private static void unmap(MappedByteBuffer mapped) {
+        if (mapped == null) {
+            return;
+        }
+        try {
+            Field field = Class.forName("sun.misc.Unsafe").getDeclaredField("theUnsafe");
+            field.setAccessible(true);
+            Object unsafe = field.get(null);
+            unsafe.getClass().getMethod("invokeCleaner", ByteBuffer.class).invoke(unsafe, mapped);
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            log.debug("Could not unmap tile store buffer, it is released when collected: {}", e.getMessage());
+        }
+    }
+
+    private void index(String key, Entry entry) {
+        unindex(key);
+        index.put(key, entry);
+        for (String cell : entry.cells) {
+            keysByCell.computeIfAbsent(cell, c -> new HashSet<>()).add(key);
+        }
+    }
+
+    private void unindex(String key) {
+        Entry previous = index.remove(key);
+        if (previous == null) {
+            return;
+        }
+        for (String cell : previous.cells) {
+            Set<String> keys = keysByCell.get(cell);
+            if (keys != null && keys.remove(key) && keys.isEmpty()) {
+                keysByCell.remove(cell);
+            }
+        }
+    }
+
+    // Zero the next magic so leftovers of a torn write are never read as a record
+    private void clearTail() {
+        if (end + 4 <= capacity) {
+            buffer.putInt(end, 0);
+        }
+    }
+
+    // Bytes compaction would keep
+    private long liveBytes(long now) {
+        return index.values().stream()
+            .filter(entry -> !isExpired(entry, now))
+            .mapToLong(entry -> entry.recordLength)
+            .sum();
+    }
+
+    private boolean isExpired(Entry entry, long now) {
+        return now - entry.writtenAt > ttl.toMillis();
+    }
+
+    private int crc(int offset, int length) {
+        CRC32 crc = new CRC32();
+        crc.update(buffer.slice(offset, length));
+        return (int) crc.getValue();
+    }
+
+    private String readString(int offset, int length) {
+        byte[] bytes = new byte[length];
+        buffer.get(offset, bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    // Compact binary form: field values only, no class metadata as with JDK serialization
+    public static byte[] encode(List<Resource> resources) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(resources.size() * 96);
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            writeResources(out, resources);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    public static List<Resource> decode(byte[] payload) {
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(payload))) {
+            return readResources(in);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    // Several tiles in the same form, each preceded by its geohash; the body of tile requests forwarded between cluster nodes
+    public static byte[] encodeTiles(Map<String, List<Resource>> tiles) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeInt(tiles.size());
+            for (Map.Entry<String, List<Resource>> tile : tiles.entrySet()) {
+                out.writeUTF(tile.getKey());
+                writeResources(out, tile.getValue());
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    public static Map<String, List<Resource>> decodeTiles(byte[] payload) {
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(payload))) {
+            int count = in.readInt();
+            Map<String, List<Resource>> tiles = new HashMap<>();
+            for (int i = 0; i < count; i++) {
+                String tile = in.readUTF();
+                tiles.put(tile, readResources(in));
+            }
+            return tiles;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static void writeResources(DataOutputStream out, List<Resource> resources) throws IOException {
+        out.writeInt(resources.size());
+        for (Resource resource : resources) {
+            writeNullable(out, resource.getId());
+            writeNullable(out, resource.getOsmId());
+            writeNullable(out, resource.getName());
+            writeNullable(out, resource.getType());
+            writeNullable(out, resource.getAddress());
+            out.writeBoolean(resource.getLocation() != null);
+            if (resource.getLocation() != null) {
+                out.writeDouble(resource.getLocation().getX());
+                out.writeDouble(resource.getLocation().getY());
+            }
+        }
+    }
+
+    private static List<Resource> readResources(DataInputStream in) throws IOException {
+        int count = in.readInt();
+        List<Resource> resources = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            Resource resource = new Resource();
+            resource.setId(readNullable(in));
+            resource.setOsmId(readNullable(in));
+            resource.setName(readNullable(in));
+            resource.setType(readNullable(in));
+            resource.setAddress(readNullable(in));
+            if (in.readBoolean()) {
+                resource.setLocation(new GeoJsonPoint(in.readDouble(), in.readDouble()));
+            }
+            resources.add(resource);
+        }
+        return resources;
+    }
+
+    private static void writeNullable(DataOutputStream out, String value) throws IOException {
+        out.writeBoolean(value != null);
+        if (value != null) {
+            out.writeUTF(value);
+        }
+    }
+
+    private static String readNullable(DataInputStream in) throws IOException {
+        return in.readBoolean() ? in.readUTF() : null;
+    }
+
+    private static class Entry {
+        private final int recordOffset;
+        private final int recordLength;
+        private final int payloadOffset;
+        private final int payloadLength;
+        private final long writtenAt;
+        private final Set<String> cells;
+
+        Entry(int recordOffset, int recordLength, int payloadOffset, int payloadLength, long writtenAt, Set<String> cells) {
+            this.recordOffset = recordOffset;
+            this.recordLength = recordLength;
+            this.payloadOffset = payloadOffset;
+            this.payloadLength = payloadLength;
+            this.writtenAt = writtenAt;
+            this.cells = cells;
+        }
+    }
+}
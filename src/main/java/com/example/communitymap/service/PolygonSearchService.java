@@ -0,0 +1,277 @@
+package com.example.communitymap.service;
+
+import com.example.communitymap.exception.ValidationException;
+import com.example.communitymap.model.GeoJsonGeometry;
+import com.example.communitymap.model.Resource;
+import com.example.communitymap.repository.ResourceRepository;
+import com.example.communitymap.util.GridPolygon;
+import com.example.communitymap.util.RequestTimings;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.Document;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.nio.ByteBuffer;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HexFormat;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Stream;
+
+/**
+ * Resources inside a GeoJSON Polygon or MultiPolygon, e.g. a service district. Small polygons
+ * go to MongoDB's $geoWithin; complex ones are answered by streaming the bounding-box
+ * candidates and testing them against a rasterized {@link GridPolygon}, which costs about the
+ * same per point regardless of how many vertices the boundary has.
+ */
+@Service
+@Slf4j
+public class PolygonSearchService {
+
+    private static final int MAX_VERTICES = 100_000;
+    private static final int MAX_CACHED_POLYGONS = 64;
+    // Pads the candidate box against rounding; latitude edges get their geodesic bow on top
+    private static final double BOX_MARGIN_DEGREES = 0.001;
+
+    private final ResourceRepository resourceRepository;
+    private final int gridMinVertices;
+    // Districts are queried over and over; keep their rasters
+    private final Map<String, GridPolygon> gridCache = new ConcurrentHashMap<>();
+
+    public PolygonSearchService(ResourceRepository resourceRepository,
+                                @Value("${polygon-search.grid-min-vertices:500}") int gridMinVertices) {
+        this.resourceRepository = resourceRepository;
+        this.gridMinVertices = gridMinVertices;
+    }
+
+    /**
+     * @param mode "db" for $geoWithin, "grid" for the in-process raster, "auto" to pick by vertex count
+     */
+    public List<Resource> findWithin(GeoJsonGeometry geometry, String type, int limit, String mode) {
+        if (limit <= 0 || limit > 5000) {
+            throw new ValidationException("Limit must be between 1 and 5000");
+        }
+        List<List<double[][]>> polygons = parse(geometry);
+        int vertices = polygons.stream().flatMap(List::stream).mapToInt(ring -> ring.length - 1).sum();
+        String filterType = type == null || type.isBlank() || type.equalsIgnoreCase("all") ? null : type.toUpperCase();
+
+        boolean useGrid;
+        switch (mode == null ? "auto" : mode.toLowerCase()) {
+            case "db":
+                useGrid = false;
+                break;
+            case "grid":
+                useGrid = true;
+                break;
+            case "auto":
+                useGrid = vertices >= gridMinVertices;
+                break;
+            default:
+                throw new ValidationException("Mode must be one of auto, db, grid");
+        }
+
+        List<Resource> results = useGrid
+            ? findWithinGrid(polygons, filterType, limit)
+            : resourceRepository.findWithin(toGeoJson(geometry.getType(), polygons), filterType, limit);
+        log.info("Polygon search ({} vertices, {}): {} resources", vertices, useGrid ? "grid" : "db", results.size());
+        return results;
+    }
+
+    private List<Resource> findWithinGrid(List<List<double[][]>> polygons, String type, int limit) {
+        String key = fingerprint(polygons);
+        GridPolygon grid = gridCache.get(key);
+        if (grid == null) {
+            grid = RequestTimings.time("polygon_index", () -> new GridPolygon(polygons));
+            if (gridCache.size() >= MAX_CACHED_POLYGONS) {
+                gridCache.clear();
+            }
+            gridCache.put(key, grid);
+        }
+
+        double[] box = grid.boundingBox();
+        double minLon = Math.max(-180, box[0] - BOX_MARGIN_DEGREES);
+        double maxLon = Math.min(180, box[2] + BOX_MARGIN_DEGREES);
+        // MongoDB joins the corners with great circles, which bow poleward of the planar edge and
+        // would cut off planar-inside points near the equatorward edge. The bow peaks near 45° and
+        // is small near the equator and the poles, so pad by its maximum over the box's latitudes,
+        // widened once by that pad since the padded edges sit further out
+        double width = maxLon - minLon;
+        boolean spansEquator = box[1] <= 0 && box[3] >= 0;
+        double lowAbsLat = spansEquator ? 0 : Math.min(Math.abs(box[1]), Math.abs(box[3]));
+        double highAbsLat = Math.max(Math.abs(box[1]), Math.abs(box[3]));
+        double bow = maxBowDegrees(lowAbsLat, highAbsLat, width);
+        double latMargin = BOX_MARGIN_DEGREES
+            + maxBowDegrees(Math.max(0, lowAbsLat - bow), Math.min(90, highAbsLat + bow), width);
+        double minLat = Math.max(-90, box[1] - latMargin);
+        double maxLat = Math.min(90, box[3] + latMargin);
+        double[][] boxRing = {{minLon, minLat}, {maxLon, minLat}, {maxLon, maxLat}, {minLon, maxLat}, {minLon, minLat}};
+        Document candidates = toGeoJson("Polygon", List.of(List.<double[][]>of(boxRing)));
+
+        List<Resource> results = new ArrayList<>();
+        long start = System.nanoTime();
+        // Stop reading candidates as soon as the limit is reached
+        try (Stream<Resource> stream = resourceRepository.streamWithin(candidates, type)) {
+            Iterator<Resource> iterator = stream.iterator();
+            while (iterator.hasNext() && results.size() < limit) {
+                Resource resource = iterator.next();
+                if (resource.getLocation() != null && grid.contains(resource.getLocation().getX(), resource.getLocation().getY())) {
+                    results.add(resource);
+                }
+            }
+        }
+        RequestTimings.record("polygon_filter", start);
+        return results;
+    }
+
+    /**
+     * How far a great circle between two points at this latitude, this many degrees of longitude
+     * apart, strays poleward of the latitude at its middle
+     */
+    static double bowDegrees(double lat, double widthDegrees) {
+        double phi = Math.toRadians(Math.min(Math.abs(lat), 89.9));
+        double apex = Math.atan(Math.tan(phi) / Math.cos(Math.toRadians(Math.min(widthDegrees, 179.9)) / 2));
+        return Math.toDegrees(apex - phi);
+    }
+
+    /**
+     * Largest bowDegrees for absolute latitudes in [lowAbsLat, highAbsLat]. The bow peaks where
+     * tan(lat) = sqrt(cos(width / 2)), just under 45°, and falls off on either side.
+     */
+    static double maxBowDegrees(double lowAbsLat, double highAbsLat, double widthDegrees) {
+        double halfWidth = Math.toRadians(Math.min(widthDegrees, 179.9)) / 2;
+        double peakLat = Math.toDegrees(Math.atan(Math.sqrt(Math.cos(halfWidth))));
+        if (lowAbsLat <= peakLat && peakLat <= highAbsLat) {
+            return bowDegrees(peakLat, widthDegrees);
+        }
+        return Math.max(bowDegrees(lowAbsLat, widthDegrees), bowDegrees(highAbsLat, widthDegrees));
+    }
+
+    /**
+     * Validate and convert the GeoJSON coordinates into polygons of rings of [lon, lat] positions
+     */
+    static List<List<double[][]>> parse(GeoJsonGeometry geometry) {
+        if (geometry == null || geometry.getType() == null || geometry.getCoordinates() == null) {
+            throw new ValidationException("A GeoJSON Polygon or MultiPolygon geometry is required");
+        }
+        List<List<double[][]>> polygons = new ArrayList<>();
+        int[] vertices = {0};
+        switch (geometry.getType()) {
+            case "Polygon":
+                polygons.add(parsePolygon(geometry.getCoordinates(), vertices));
+                break;
+            case "MultiPolygon":
+                for (Object polygon : geometry.getCoordinates()) {
+                    polygons.add(parsePolygon(asList(polygon, "polygon"), vertices));
+                }
+                break;
+            default:
+                throw new ValidationException("Geometry type must be Polygon or MultiPolygon, got " + geometry.getType());
+        }
+        if (polygons.isEmpty()) {
+            throw new ValidationException("MultiPolygon must contain at least one polygon");
+        }
+        // MongoDB reads polygons spanning a hemisphere or more as their complement
+        double minLon = 180, maxLon = -180;
+        for (List<double[][]> polygon : polygons) {
+            for (double[] position : polygon.get(0)) {
+                minLon = Math.min(minLon, position[0]);
+                maxLon = Math.max(maxLon, position[0]);
+            }
+        }
+        if (maxLon - minLon >= 180) {
+            throw new ValidationException("Geometry must span less than 180 degrees of longitude");
+        }
+        return polygons;
+    }
+
+    // Content hash of the coordinates; double[] has identity equality, so it cannot be a map key itself
+    private static String fingerprint(List<List<double[][]>> polygons) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            ByteBuffer buffer = ByteBuffer.allocate(16);
+            for (List<double[][]> polygon : polygons) {
+                for (double[][] ring : polygon) {
+                    for (double[] position : ring) {
+                        buffer.clear();
+                        buffer.putDouble(position[0]).putDouble(position[1]);
+                        digest.update(buffer.array());
+                    }
+                    // Ring separator so different splits of the same positions do not collide
+                    digest.update((byte) 0x7f);
+                }
+                digest.update((byte) 0x7e);
+            }
+            return HexFormat.of().formatHex(digest.digest());
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    private static List<double[][]> parsePolygon(List<?> rings, int[] vertices) {
+        if (rings.isEmpty()) {
+            throw new ValidationException("Polygon must have an outer ring");
+        }
+        List<double[][]> parsed = new ArrayList<>(rings.size());
+        for (Object ringObject : rings) {
+            List<?> positions = asList(ringObject, "ring");
+            if (positions.size() < 4) {
+                throw new ValidationException("A polygon ring needs at least 4 positions");
+            }
+            vertices[0] += positions.size();
+            if (vertices[0] > MAX_VERTICES) {
+                throw new ValidationException("Geometry may have at most " + MAX_VERTICES + " vertices");
+            }
+            double[][] ring = new double[positions.size()][];
+            for (int i = 0; i < positions.size(); i++) {
+                ring[i] = parsePosition(positions.get(i));
+            }
+            if (!Arrays.equals(ring[0], ring[ring.length - 1])) {
+                throw new ValidationException("Polygon rings must be closed (first and last position equal)");
+            }
+            parsed.add(ring);
+        }
+        return parsed;
+    }
+
+    private static double[] parsePosition(Object positionObject) {
+        List<?> position = asList(positionObject, "position");
+        if (position.size() < 2 || !(position.get(0) instanceof Number) || !(position.get(1) instanceof Number)) {
+            throw new ValidationException("Positions must be [longitude, latitude] numbers");
+        }
+        double lon = ((Number) position.get(0)).doubleValue();
+        double lat = ((Number) position.get(1)).doubleValue();
+        if (lon < -180 || lon > 180 || lat < -90 || lat > 90) {
+            throw new ValidationException("Position out of range: [" + lon + ", " + lat + "]");
+        }
+        return new double[] {lon, lat};
+    }
+
+    private static List<?> asList(Object value, String what) {
+        if (!(value instanceof List)) {
+            throw new ValidationException("Invalid GeoJSON coordinates: expected an array for each " + what);
+        }
+        return (List<?>) value;
+    }
+
+    private static Document toGeoJson(String type, List<List<double[][]>> polygons) {
+        List<Object> polygonCoordinates = new ArrayList<>();
+        for (List<double[][]> polygon : polygons) {
+            List<Object> rings = new ArrayList<>();
+            for (double[][] ring : polygon) {
+                List<Object> positions = new ArrayList<>(ring.length);
+                for (double[] position : ring) {
+                    positions.add(List.of(position[0], position[1]));
+                }
+                rings.add(positions);
+            }
+            polygonCoordinates.add(rings);
+        }
+        return new Document("type", type)
+            .append("coordinates", "Polygon".equals(type) ? polygonCoordinates.get(0) : polygonCoordinates);
+    }
+}
@@ -0,0 +1,288 @@
+package com.example.communitymap.service;
+
+import com.example.communitymap.exception.InvalidLocationException;
+import com.example.communitymap.model.Resource;
+import com.example.communitymap.model.ResourceChangeEvent;
+import com.example.communitymap.util.Geohash;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.mongodb.core.geo.GeoJsonPoint;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Fans resource changes out to SSE subscribers whose viewport contains them. Subscribers
+ * are indexed by the coarse geohash cells their bounding box covers, so a change is only
+ * checked against subscribers registered for its cell. Events are queued per subscriber
+ * and written by a small sender pool, so a slow client never blocks the writer's thread,
+ * the change stream or the heartbeat; a client whose queue fills up is disconnected.
+ */
+@Service
+@Slf4j
+public class ResourceChangeHub {
+
+    private static final int INDEX_PRECISION = 4;
+    // Larger viewports are kept in a flat list instead of hundreds of index cells
+    private static final int MAX_INDEX_CELLS = 64;
+
+    private final Map<String, Set<Subscriber>> index = new ConcurrentHashMap<>();
+    private final Set<Subscriber> wideSubscribers = ConcurrentHashMap.newKeySet();
+    private final Set<Subscriber> allSubscribers = ConcurrentHashMap.newKeySet();
+    private final ScheduledExecutorService heartbeat = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "sse-heartbeat");
+        thread.setDaemon(true);
+        return thread;
+    });
+    // At most one drain task per subscriber is queued at a time
+    private final ExecutorService sender;
+
+    private final Duration timeout;
+    private final int maxPendingEvents;
+    private final boolean changeStreamEnabled;
+
+    public ResourceChangeHub(@Value("${sse.timeout:PT30M}") Duration timeout,
+                             @Value("${sse.heartbeat-interval:PT30S}") Duration heartbeatInterval,
+                             @Value("${sse.sender-pool-size:4}") int senderPoolSize,
+                             @Value("${sse.max-pending-events:256}") int maxPendingEvents,
+                             @Value("${change-stream.enabled:false}") boolean changeStreamEnabled) {
+        this.timeout = timeout;
+        this.maxPendingEvents = maxPendingEvents;
+        this.changeStreamEnabled = changeStreamEnabled;
+        AtomicInteger threadCount = new AtomicInteger();
+        this.sender = Executors.newFixedThreadPool(senderPoolSize, runnable -> {
+            Thread thread = new Thread(runnable, "sse-sender-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        long intervalMs = heartbeatInterval.toMillis();
+        heartbeat.scheduleAtFixedRate(this::sendHeartbeats, intervalMs, intervalMs, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    void shutdown() {
+        heartbeat.shutdownNow();
+        sender.shutdownNow();
+        allSubscribers.forEach(subscriber -> subscriber.emitter.complete());
+    }
+
+    public SseEmitter subscribe(double minLat, double minLon, double maxLat, double maxLon) {
+        validateBoundingBox(minLat, minLon, maxLat, maxLon);
+        SseEmitter emitter = new SseEmitter(timeout.toMillis());
+        // Count first so wide viewports never enumerate their cells
+        boolean wide = Geohash.cellCount(minLat, minLon, maxLat, maxLon, INDEX_PRECISION) > MAX_INDEX_CELLS;
+        Set<String> cells = wide ? Set.of() : Geohash.cover(minLat, minLon, maxLat, maxLon, INDEX_PRECISION);
+        Subscriber subscriber = new Subscriber(emitter, minLat, minLon, maxLat, maxLon, cells);
+
+        if (wide) {
+            wideSubscribers.add(subscriber);
+        } else {
+            cells.forEach(cell -> index.computeIfAbsent(cell, k -> ConcurrentHashMap.newKeySet()).add(subscriber));
+        }
+        allSubscribers.add(subscriber);
+
+        emitter.onCompletion(() -> remove(subscriber));
+        emitter.onTimeout(() -> remove(subscriber));
+        emitter.onError(e -> remove(subscriber));
+        log.debug("SSE subscriber added for [{}, {}] - [{}, {}] ({} total)", minLat, minLon, maxLat, maxLon, allSubscribers.size());
+        return emitter;
+    }
+
+    /**
+     * Local writes feed the hub only when change streams are off; otherwise the change
+     * stream delivers them (from every node) and this would duplicate them.
+     */
+    @EventListener
+    public void onLocalChange(ResourceChangeEvent event) {
+        if (!changeStreamEnabled) {
+            publish(event);
+        }
+    }
+
+    public void publish(ResourceChangeEvent event) {
+        Resource resource = event.getResource();
+        GeoJsonPoint location = resource != null ? resource.getLocation() : null;
+        GeoJsonPoint previousLocation = event.getPreviousLocation();
+        if (location == null && previousLocation == null) {
+            // Deletes without a known location only carry the id; clients drop ids they do not know
+            allSubscribers.forEach(subscriber -> enqueue(subscriber, eventOf(event)));
+            return;
+        }
+
+        // A moved resource goes to viewports around both its old and its new position
+        Set<Subscriber> recipients = new LinkedHashSet<>();
+        addSubscribersAt(location, recipients);
+        addSubscribersAt(previousLocation, recipients);
+        // A builder per recipient: send() mutates it, and recipients are drained concurrently
+        recipients.forEach(subscriber -> enqueue(subscriber, eventOf(event)));
+    }
+
+    public int subscriberCount() {
+        return allSubscribers.size();
+    }
+
+    private static void validateBoundingBox(double minLat, double minLon, double maxLat, double maxLon) {
+        // Negated so NaN is rejected as well
+        if (!(minLat >= -90 && maxLat <= 90 && minLon >= -180 && maxLon <= 180)) {
+            throw new InvalidLocationException("Bounding box must lie within latitude -90..90 and longitude -180..180");
+        }
+        if (!(minLat <= maxLat && minLon <= maxLon)) {
+            throw new InvalidLocationException("Bounding box minimum must not exceed its maximum");
+        }
+    }
+
+    private void addSubscribersAt(GeoJsonPoint point, Set<Subscriber> recipients) {
+        if (point == null) {
+            return;
+        }
+        double lat = point.getY();
+        double lon = point.getX();
+        Set<Subscriber> candidates = index.get(Geohash.encode(lat, lon, INDEX_PRECISION));
+        if (candidates != null) {
+            candidates.stream().filter(subscriber -> subscriber.contains(lat, lon)).forEach(recipients::add);
+        }
+        wideSubscribers.stream().filter(subscriber -> subscriber.contains(lat, lon)).forEach(recipients::add);
+    }
+
+    private static SseEmitter.SseEventBuilder eventOf(ResourceChangeEvent event) {
+        return SseEmitter.event().name(event.getOperation()).data(event, MediaType.APPLICATION_JSON);
+    }
+
+    private void sendHeartbeats() {
+        for (Subscriber subscriber : allSubscribers) {
+            enqueue(subscriber, SseEmitter.event().comment("keep-alive"));
+        }
+    }
+
+    private void enqueue(Subscriber subscriber, SseEmitter.SseEventBuilder event) {
+        boolean schedule;
+        synchronized (subscriber) {
+            if (subscriber.closed) {
+                return;
+            }
+            if (subscriber.pending.size() >= maxPendingEvents) {
+                // Its drain is stuck in a send holding the emitter's lock, so completing the
+                // emitter here would block the publisher; the drain completes it once the send returns
+                log.debug("SSE subscriber fell {} events behind, disconnecting", maxPendingEvents);
+                subscriber.pending.clear();
+                subscriber.closed = true;
+                remove(subscriber);
+                return;
+            }
+            subscriber.pending.add(event);
+            schedule = !subscriber.draining;
+            subscriber.draining = true;
+        }
+        if (schedule) {
+            try {
+                sender.execute(() -> drain(subscriber));
+            } catch (RejectedExecutionException e) {
+                // Shutting down
+                remove(subscriber);
+            }
+        }
+    }
+
+    // Sends the subscriber's queued events in order; the only thread writing to its emitter
+    private void drain(Subscriber subscriber) {
+        while (true) {
+            SseEmitter.SseEventBuilder event;
+            boolean closed;
+            synchronized (subscriber) {
+                closed = subscriber.closed;
+                event = closed ? null : subscriber.pending.poll();
+                if (event == null) {
+                    subscriber.draining = false;
+                }
+            }
+            if (closed) {
+                completeQuietly(subscriber.emitter);
+                return;
+            }
+            if (event == null) {
+                return;
+            }
+            try {
+                subscriber.emitter.send(event);
+            } catch (IOException | RuntimeException e) {
+                // Any failure drops the subscriber; left draining, it would never be sent to again
+                log.debug("SSE send failed, dropping subscriber: {}", e.toString());
+                synchronized (subscriber) {
+                    subscriber.pending.clear();
+                    subscriber.draining = false;
+                }
+                remove(subscriber);
+                if (!(e instanceof IOException)) {
+                    completeQuietly(subscriber.emitter);
+                }
+                return;
+            }
+        }
+    }
+
+    // The client reconnects and resubscribes; the emitter may already be completed
+    private static void completeQuietly(SseEmitter emitter) {
+        try {
+            emitter.complete();
+        } catch (RuntimeException e) {
+            log.debug("Could not complete SSE emitter: {}", e.getMessage());
+        }
+    }
+
+    private void remove(Subscriber subscriber) {
+        if (!allSubscribers.remove(subscriber)) {
+            return;
+        }
+        wideSubscribers.remove(subscriber);
+        for (String cell : subscriber.cells) {
+            index.computeIfPresent(cell, (k, subscribers) -> {
+                subscribers.remove(subscriber);
+                return subscribers.isEmpty() ? null : subscribers;
+            });
+        }
+    }
+
+    private static class Subscriber {
+        private final SseEmitter emitter;
+        private final double minLat;
+        private final double minLon;
+        private final double maxLat;
+        private final double maxLon;
+        private final Set<String> cells;
+        // Guarded by the subscriber's monitor
+        private final Queue<SseEmitter.SseEventBuilder> pending = new ArrayDeque<>();
+        private boolean draining;
+        // Dropped for falling behind; the drain completes the emitter
+        private boolean closed;
+
+        Subscriber(SseEmitter emitter, double minLat, double minLon, double maxLat, double maxLon, Set<String> cells) {
+            this.emitter = emitter;
+            this.minLat = minLat;
+            this.minLon = minLon;
+            this.maxLat = maxLat;
+            this.maxLon = maxLon;
+            this.cells = cells;
+        }
+
+        boolean contains(double lat, double lon) {
+            return lat >= minLat && lat <= maxLat && lon >= minLon && lon <= maxLon;
+        }
+    }
+}
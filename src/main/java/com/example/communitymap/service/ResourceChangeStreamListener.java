@@ -0,0 +1,107 @@
+package com.example.communitymap.service;
+
+import com.example.communitymap.model.Resource;
+import com.example.communitymap.model.ResourceChangeEvent;
+import com.mongodb.client.model.changestream.ChangeStreamDocument;
+import com.mongodb.client.model.changestream.FullDocument;
+import com.mongodb.client.model.changestream.FullDocumentBeforeChange;
+import com.mongodb.client.model.changestream.OperationType;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.BsonValue;
+import org.bson.Document;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.geo.GeoJsonPoint;
+import org.springframework.data.mongodb.core.messaging.ChangeStreamRequest;
+import org.springframework.data.mongodb.core.messaging.DefaultMessageListenerContainer;
+import org.springframework.data.mongodb.core.messaging.Message;
+import org.springframework.data.mongodb.core.messaging.MessageListenerContainer;
+import org.springframework.stereotype.Service;
+
+import java.util.Objects;
+
+/**
+ * Tails the resources collection's change stream (requires a replica set) and hands every
+ * insert, update and delete to the {@link ResourceChangeHub}, so writes from any node reach
+ * subscribers on every node. Where the collection has pre-images enabled (MongoDB 6.0+,
+ * changeStreamPreAndPostImages), deletes and moves are routed by the resource's previous
+ * location; without them, deletes go to every subscriber.
+ */
+@Service
+@ConditionalOnProperty(name = "change-stream.enabled", havingValue = "true")
+@Slf4j
+public class ResourceChangeStreamListener {
+
+    private final MessageListenerContainer container;
+    private final ResourceChangeHub changeHub;
+
+    public ResourceChangeStreamListener(MongoTemplate mongoTemplate, ResourceChangeHub changeHub) {
+        this.container = new DefaultMessageListenerContainer(mongoTemplate);
+        this.changeHub = changeHub;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    void start() {
+        ChangeStreamRequest<Resource> request = ChangeStreamRequest.builder(this::onMessage)
+            .collection("resources")
+            .fullDocumentLookup(FullDocument.UPDATE_LOOKUP)
+            .fullDocumentBeforeChangeLookup(FullDocumentBeforeChange.WHEN_AVAILABLE)
+            .build();
+        container.register(request, Resource.class);
+        container.start();
+        log.info("Listening to the resources change stream");
+    }
+
+    @PreDestroy
+    void stop() {
+        container.stop();
+    }
+
+    private void onMessage(Message<ChangeStreamDocument<Document>, Resource> message) {
+        ChangeStreamDocument<Document> raw = message.getRaw();
+        if (raw == null || raw.getOperationType() == null) {
+            return;
+        }
+
+        String operation;
+        OperationType type = raw.getOperationType();
+        if (type == OperationType.INSERT) {
+            operation = ResourceChangeEvent.INSERT;
+        } else if (type == OperationType.UPDATE || type == OperationType.REPLACE) {
+            operation = ResourceChangeEvent.UPDATE;
+        } else if (type == OperationType.DELETE) {
+            operation = ResourceChangeEvent.DELETE;
+        } else {
+            return;
+        }
+
+        Resource resource = message.getBody();
+        Resource before = message.getBodyBeforeChange();
+        String id = resource != null ? resource.getId() : before != null ? before.getId() : documentId(raw);
+        if (operation.equals(ResourceChangeEvent.DELETE)) {
+            changeHub.publish(new ResourceChangeEvent(operation, id, before));
+            return;
+        }
+        GeoJsonPoint previousLocation = before == null || resource == null
+            || Objects.equals(before.getLocation(), resource.getLocation()) ? null : before.getLocation();
+        changeHub.publish(new ResourceChangeEvent(operation, id, resource, previousLocation));
+    }
+
+    private static String documentId(ChangeStreamDocument<Document> raw) {
+        if (raw.getDocumentKey() == null) {
+            return null;
+        }
+        BsonValue id = raw.getDocumentKey().get("_id");
+        if (id == null) {
+            return null;
+        }
+        // The id as clients know it; BsonValue.toString() would wrap it, e.g. BsonString{value='park-1'}
+        if (id.isObjectId()) {
+            return id.asObjectId().getValue().toHexString();
+        }
+        return id.isString() ? id.asString().getValue() : id.toString();
+    }
+}
@@ -3,28 +3,53 @@ package com.example.communitymap.service;
 import com.example.communitymap.exception.InvalidLocationException;
 import com.example.communitymap.exception.ResourceNotFoundException;
 import com.example.communitymap.exception.ValidationException;
+import com.example.communitymap.model.MarkerArrays;
+import com.example.communitymap.model.NearestByType;
 import com.example.communitymap.model.Resource;
+import com.example.communitymap.model.ResourceChangeEvent;
+import com.example.communitymap.model.ResourceCluster;
+import com.example.communitymap.model.ResourceMarker;
 import com.example.communitymap.repository.ResourceRepository;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.mongodb.core.geo.GeoJsonPoint;
 import org.springframework.stereotype.Service;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 @Service
 @RequiredArgsConstructor
 @Slf4j
 public class ResourceService {
     
+    // International mile; every miles/km/meters conversion goes through these
+    public static final double METERS_PER_MILE = 1609.344;
+    public static final double KM_PER_MILE = METERS_PER_MILE / 1000;
+    
     private final ResourceRepository resourceRepository;
+    private final CacheInvalidationService cacheInvalidationService;
+    private final ApplicationEventPublisher eventPublisher;
     
     public Resource addResource(Resource resource) {
         validateResource(resource);
         log.info("Adding new resource: {}", resource.getName());
-        return resourceRepository.save(resource);
+        Resource saved = resourceRepository.save(resource);
+        cacheInvalidationService.invalidate(List.of(saved.getLocation()));
+        eventPublisher.publishEvent(new ResourceChangeEvent(ResourceChangeEvent.INSERT, saved.getId(), saved));
+        return saved;
     }
     
     public Page<Resource> getAllResources(int page, int size) {
@@ -44,26 +69,123 @@ public class ResourceService {
             .orElseThrow(() -> new ResourceNotFoundException("Resource not found with id: " + id));
     }
     
+    public Optional<Resource> findResourceByOsmId(String osmId) {
+        log.debug("Fetching resource with OSM id: {}", osmId);
+        return resourceRepository.findByOsmIdIn(List.of(osmId)).stream().findFirst();
+    }
+    
     public List<Resource> findResourcesNearby(double longitude, double latitude, double distanceInMiles) {
+        return findResourcesNearby(longitude, latitude, distanceInMiles, 100); // Limit to 100 results
+    }
+    
+    /**
+     * Resources within the distance, nearest first, at most limit of them
+     */
+    public List<Resource> findResourcesNearby(double longitude, double latitude, double distanceInMiles, int limit) {
         validateCoordinates(longitude, latitude);
         validateDistance(distanceInMiles);
         
-        // Convert miles to meters (1 mile = 1609.34 meters)
-        double distanceInMeters = distanceInMiles * 1609.34;
+        double distanceInMeters = distanceInMiles * METERS_PER_MILE;
         
         log.info("Searching for resources near ({}, {}) within {} miles", latitude, longitude, distanceInMiles);
         
         // Use optimized query with pagination for better performance
-        Pageable pageable = PageRequest.of(0, 100); // Limit to 100 results
+        Pageable pageable = PageRequest.of(0, limit);
         List<Resource> results = resourceRepository.findNearbyResourcesOptimized(latitude, longitude, distanceInMeters, pageable);
         
         log.info("Found {} resources nearby", results.size());
         return results;
     }
     
+    /**
+     * Id, type and coordinates of up to limit resources within the distance, closest first
+     */
+    public List<ResourceMarker> findMarkersNearby(double longitude, double latitude, double distanceInMiles, int limit) {
+        validateCoordinates(longitude, latitude);
+        validateDistance(distanceInMiles);
+        if (limit <= 0 || limit > 5000) {
+            throw new ValidationException("Limit must be between 1 and 5000");
+        }
+        List<ResourceMarker> markers = resourceRepository.findMarkersNear(latitude, longitude, distanceInMiles * METERS_PER_MILE, limit);
+        log.info("Found {} markers near ({}, {})", markers.size(), latitude, longitude);
+        return markers;
+    }
+    
+    /**
+     * Column layout of the markers; coordinates rounded to 6 decimals (~0.1 m) to keep the JSON short
+     */
+    public static MarkerArrays toMarkerArrays(List<ResourceMarker> markers) {
+        int size = markers.size();
+        String[] ids = new String[size];
+        String[] osmIds = new String[size];
+        String[] types = new String[size];
+        double[] lats = new double[size];
+        double[] lons = new double[size];
+        for (int i = 0; i < size; i++) {
+            ResourceMarker marker = markers.get(i);
+            ids[i] = marker.getId();
+            osmIds[i] = marker.getOsmId();
+            types[i] = marker.getType();
+            lats[i] = Math.round(marker.getLat() * 1e6) / 1e6;
+            lons[i] = Math.round(marker.getLon() * 1e6) / 1e6;
+        }
+        return new MarkerArrays(ids, osmIds, types, lats, lons);
+    }
+    
+    /**
+     * Number of stored resources within the distance, without loading them
+     */
+    public long countResourcesNearby(double longitude, double latitude, double distanceInMiles) {
+        validateCoordinates(longitude, latitude);
+        validateDistance(distanceInMiles);
+        return resourceRepository.countNearbyResources(latitude, longitude, distanceInMiles * METERS_PER_MILE);
+    }
+    
+    /**
+     * Stored resources within the distance aggregated into a grid of cellDegrees
+     */
+    public List<ResourceCluster> clusterResourcesNearby(double longitude, double latitude, double distanceInMiles, double cellDegrees) {
+        validateCoordinates(longitude, latitude);
+        validateDistance(distanceInMiles);
+        return resourceRepository.clusterNearbyResources(latitude, longitude, distanceInMiles * METERS_PER_MILE, cellDegrees);
+    }
+    
+    /**
+     * The k nearest resources of each requested type (all types when none given), in one query
+     */
+    public List<NearestByType> findNearestPerType(double longitude, double latitude, double distanceInMiles,
+                                                  Collection<String> types, int k) {
+        validateCoordinates(longitude, latitude);
+        validateDistance(distanceInMiles);
+        if (k <= 0 || k > 50) {
+            throw new ValidationException("k must be between 1 and 50");
+        }
+        
+        List<String> normalizedTypes = types == null ? List.of() : types.stream()
+            .map(type -> type.trim().toUpperCase())
+            .filter(type -> !type.isEmpty())
+            .distinct()
+            .toList();
+        
+        log.info("Searching for nearest {} per type {} near ({}, {}) within {} miles", k, normalizedTypes, latitude, longitude, distanceInMiles);
+        List<NearestByType> groups = resourceRepository.findNearestPerType(
+            latitude, longitude, distanceInMiles * METERS_PER_MILE, normalizedTypes, k);
+        
+        // Requested types with nothing in range are reported as empty groups, in request order
+        if (normalizedTypes.isEmpty()) {
+            return groups;
+        }
+        Map<String, NearestByType> byType = groups.stream()
+            .collect(Collectors.toMap(NearestByType::getType, Function.identity()));
+        return normalizedTypes.stream()
+            .map(type -> byType.getOrDefault(type, new NearestByType(type, List.of())))
+            .toList();
+    }
+    
     public Resource updateResource(String id, Resource resource) {
         validateResource(resource);
         Resource existingResource = getResourceById(id);
+        GeoJsonPoint previousLocation = existingResource.getLocation();
         
         existingResource.setName(resource.getName());
         existingResource.setType(resource.getType());
@@ -71,13 +193,96 @@ public class ResourceService {
         existingResource.setLocation(resource.getLocation());
         
         log.info("Updating resource with id: {}", id);
-        return resourceRepository.save(existingResource);
+        Resource saved = resourceRepository.save(existingResource);
+        // Evict both the old and the new position in case the resource moved
+        cacheInvalidationService.invalidate(Arrays.asList(previousLocation, saved.getLocation()));
+        // The previous position lets subscribers watching only the old spot see the resource leave
+        GeoJsonPoint movedFrom = Objects.equals(previousLocation, saved.getLocation()) ? null : previousLocation;
+        eventPublisher.publishEvent(new ResourceChangeEvent(ResourceChangeEvent.UPDATE, saved.getId(), saved, movedFrom));
+        return saved;
     }
     
     public void deleteResource(String id) {
         Resource resource = getResourceById(id);
         log.info("Deleting resource with id: {}", id);
         resourceRepository.delete(resource);
+        cacheInvalidationService.invalidate(List.of(resource.getLocation()));
+        eventPublisher.publishEvent(new ResourceChangeEvent(ResourceChangeEvent.DELETE, id, resource));
+    }
+    
+    /**
+     * Insert or update OSM-backed resources keyed by osmId, keeping existing document ids.
+     * Invalid elements are skipped so one bad element does not fail the whole batch;
+     * callers can tell how many were skipped from the size of the returned list.
+     */
+    public List<Resource> upsertOsmResources(List<Resource> resources) {
+        if (resources.isEmpty()) {
+            return List.of();
+        }
+        // Last occurrence wins when the same element appears more than once
+        Map<String, Resource> byOsmId = new LinkedHashMap<>();
+        int invalid = 0;
+        for (Resource resource : resources) {
+            try {
+                validateResource(resource);
+                if (resource.getOsmId() == null) {
+                    throw new ValidationException("OSM id is required for OSM resources");
+                }
+            } catch (ValidationException e) {
+                log.warn("Skipping invalid OSM resource {}: {}", resource != null ? resource.getOsmId() : null, e.getMessage());
+                invalid++;
+                continue;
+            }
+            byOsmId.put(resource.getOsmId(), resource);
+        }
+        if (invalid > 0) {
+            log.info("Skipped {} invalid OSM resources", invalid);
+        }
+        if (byOsmId.isEmpty()) {
+            return List.of();
+        }
+        
+        Map<String, Resource> existing = resourceRepository.findByOsmIdIn(byOsmId.keySet()).stream()
+            .collect(Collectors.toMap(Resource::getOsmId, Function.identity(), (a, b) -> a));
+        
+        List<GeoJsonPoint> touched = new ArrayList<>();
+        for (Resource resource : byOsmId.values()) {
+            Resource current = existing.get(resource.getOsmId());
+            resource.setId(current != null ? current.getId() : null);
+            if (current != null) {
+                touched.add(current.getLocation());
+            }
+            touched.add(resource.getLocation());
+        }
+        
+        log.info("Upserting {} OSM resources ({} already stored)", byOsmId.size(), existing.size());
+        List<Resource> saved = resourceRepository.saveAll(byOsmId.values());
+        cacheInvalidationService.invalidate(touched);
+        for (Resource resource : saved) {
+            Resource current = existing.get(resource.getOsmId());
+            if (current == null) {
+                eventPublisher.publishEvent(new ResourceChangeEvent(ResourceChangeEvent.INSERT, resource.getId(), resource));
+            } else {
+                GeoJsonPoint movedFrom = Objects.equals(current.getLocation(), resource.getLocation()) ? null : current.getLocation();
+                eventPublisher.publishEvent(new ResourceChangeEvent(ResourceChangeEvent.UPDATE, resource.getId(), resource, movedFrom));
+            }
+        }
+        return saved;
+    }
+    
+    /**
+     * Remove OSM-backed resources by osmId; unknown ids are ignored
+     */
+    public List<Resource> deleteOsmResources(Collection<String> osmIds) {
+        if (osmIds.isEmpty()) {
+            return List.of();
+        }
+        List<Resource> deleted = resourceRepository.deleteByOsmIdIn(osmIds);
+        log.info("Deleted {} OSM resources", deleted.size());
+        cacheInvalidationService.invalidate(deleted.stream().map(Resource::getLocation).toList());
+        deleted.forEach(resource -> eventPublisher.publishEvent(
+            new ResourceChangeEvent(ResourceChangeEvent.DELETE, resource.getId(), resource)));
+        return deleted;
     }
     
     private void validateResource(Resource resource) {
@@ -98,17 +303,26 @@ public class ResourceService {
         }
     }
     
-    private void validateCoordinates(double longitude, double latitude) {
-        if (longitude < -180 || longitude > 180) {
+    /**
+     * Validate a circle given by its center and radius in km, as accepted by the area endpoints
+     */
+    public static void validateArea(double longitude, double latitude, double radiusKm) {
+        validateCoordinates(longitude, latitude);
+        validateDistance(radiusKm / KM_PER_MILE);
+    }
+    
+    // Negated comparisons so NaN is rejected too
+    static void validateCoordinates(double longitude, double latitude) {
+        if (!(longitude >= -180 && longitude <= 180)) {
             throw new InvalidLocationException("Longitude must be between -180 and 180");
         }
-        if (latitude < -90 || latitude > 90) {
+        if (!(latitude >= -90 && latitude <= 90)) {
             throw new InvalidLocationException("Latitude must be between -90 and 90");
         }
     }
     
-    private void validateDistance(double distance) {
-        if (distance <= 0) {
+    static void validateDistance(double distance) {
+        if (!(distance > 0)) {
             throw new ValidationException("Distance must be greater than 0");
         }
         if (distance > 100) {
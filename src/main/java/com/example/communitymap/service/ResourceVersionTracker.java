@@ -0,0 +1,77 @@
+package com.example.communitymap.service;
+
+import com.example.communitymap.util.Geohash;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Monotonic data versions, bumped on every write broadcast by {@link CacheInvalidationService}.
+ * Keeps a collection-wide counter plus one counter per geohash prefix, so an area of any
+ * size can be versioned from a handful of cells.
+ */
+@Service
+public class ResourceVersionTracker implements CellInvalidationListener {
+
+    private static final int MAX_CELLS_PER_AREA = 16;
+    private static final int MAX_MEMOIZED_AREAS = 10_000;
+
+    @Value("${cache.invalidation.geohash-precision:5}")
+    private int maxPrecision;
+
+    private final AtomicLong collectionVersion = new AtomicLong();
+    private final Map<String, AtomicLong> cellVersions = new ConcurrentHashMap<>();
+    // Area key -> {collection version, area version} at the time it was computed
+    private final Map<String, long[]> areaVersions = new ConcurrentHashMap<>();
+
+    @Override
+    public void onCellsInvalidated(Set<String> cells) {
+        for (String cell : cells) {
+            // Bump every coarser prefix too, so areas versioned at a lower precision see the write
+            for (int length = 1; length <= cell.length(); length++) {
+                cellVersions.computeIfAbsent(cell.substring(0, length), k -> new AtomicLong()).incrementAndGet();
+            }
+        }
+        // Last, so an area version memoized under the new collection version includes these cells
+        collectionVersion.incrementAndGet();
+    }
+
+    public long collectionVersion() {
+        return collectionVersion.get();
+    }
+
+    /**
+     * Version of the circle around a point; changes whenever a write lands in a covering cell.
+     * Coordinates must already be validated.
+     */
+    public long areaVersion(double lat, double lon, double radiusKm) {
+        // Nothing was written since this area was last versioned: reuse the result
+        long collection = collectionVersion.get();
+        String key = lat + ":" + lon + ":" + radiusKm;
+        long[] memo = areaVersions.get(key);
+        if (memo != null && memo[0] == collection) {
+            return memo[1];
+        }
+
+        // Precision picked from the arithmetic cell count, so only the chosen cover is enumerated
+        int precision = Geohash.precisionFor(lat, lon, radiusKm, maxPrecision, MAX_CELLS_PER_AREA);
+        // Counters only grow, so the sum changes on every write to any of the cells
+        long version = 0;
+        for (String cell : Geohash.cover(lat, lon, radiusKm, precision)) {
+            AtomicLong cellVersion = cellVersions.get(cell);
+            if (cellVersion != null) {
+                version += cellVersion.get();
+            }
+        }
+
+        if (areaVersions.size() >= MAX_MEMOIZED_AREAS) {
+            areaVersions.clear();
+        }
+        areaVersions.put(key, new long[] {collection, version});
+        return version;
+    }
+}
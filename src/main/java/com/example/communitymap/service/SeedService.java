@@ -0,0 +1,314 @@
+package com.example.communitymap.service;
+
+import com.example.communitymap.exception.ValidationException;
+import com.example.communitymap.model.IngestionResult;
+import com.example.communitymap.model.Resource;
+import com.example.communitymap.model.ResourceChangeEvent;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.mongodb.bulk.BulkWriteResult;
+import com.mongodb.bulk.BulkWriteUpsert;
+import com.mongodb.client.model.UpdateOptions;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.Document;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.core.io.ResourceLoader;
+import org.springframework.core.io.support.ResourcePatternResolver;
+import org.springframework.core.io.support.ResourcePatternUtils;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.geo.GeoJsonPoint;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Loads resources from JSON or GeoJSON seed files. Files are read as a stream and written in
+ * unordered bulk upserts of a fixed size, so their size is not bounded by memory. Every record
+ * gets a deterministic id and is only inserted if absent, which makes loading the same file
+ * again, or resuming an interrupted load, a no-op for records already stored.
+ */
+@Service
+@Slf4j
+public class SeedService {
+
+    private static final String RUNS_COLLECTION = "seed_runs";
+    private static final String COMPLETE = "COMPLETE";
+
+    private final MongoTemplate mongoTemplate;
+    private final ObjectMapper objectMapper;
+    private final CacheInvalidationService cacheInvalidationService;
+    private final ApplicationEventPublisher eventPublisher;
+    private final ResourcePatternResolver resourcePatternResolver;
+    private final String[] locations;
+    private final int batchSize;
+
+    public SeedService(MongoTemplate mongoTemplate,
+                       ObjectMapper objectMapper,
+                       CacheInvalidationService cacheInvalidationService,
+                       ApplicationEventPublisher eventPublisher,
+                       ResourceLoader resourceLoader,
+                       @Value("${bootstrap.seed.locations:classpath*:seed/*.geojson}") String[] locations,
+                       @Value("${bootstrap.seed.batch-size:1000}") int batchSize) {
+        this.mongoTemplate = mongoTemplate;
+        this.objectMapper = objectMapper;
+        this.cacheInvalidationService = cacheInvalidationService;
+        this.eventPublisher = eventPublisher;
+        this.resourcePatternResolver = ResourcePatternUtils.getResourcePatternResolver(resourceLoader);
+        this.locations = locations;
+        this.batchSize = batchSize;
+    }
+
+    /**
+     * Load every configured seed file not yet loaded in its current version. A collection that
+     * already holds data but has never been seeded (filled before seed files existed) is left alone.
+     *
+     * @return number of resources inserted
+     */
+    public int loadConfigured() throws IOException {
+        boolean seededBefore = mongoTemplate.getCollection(RUNS_COLLECTION).estimatedDocumentCount() > 0;
+        boolean hasData = mongoTemplate.estimatedCount(Resource.class) > 0;
+        if (!seededBefore && hasData) {
+            log.info("Resources collection has data from before seed tracking, skipping seed files");
+            return 0;
+        }
+
+        int inserted = 0;
+        for (String location : locations) {
+            for (org.springframework.core.io.Resource file : resourcePatternResolver.getResources(location.trim())) {
+                inserted += loadFile(file);
+            }
+        }
+        return inserted;
+    }
+
+    /**
+     * Insert the records of a JSON array or GeoJSON FeatureCollection that are not stored yet
+     */
+    public IngestionResult load(InputStream json) {
+        SeedBatch batch = new SeedBatch();
+        try (JsonParser parser = objectMapper.createParser(json)) {
+            JsonToken token = parser.nextToken();
+            if (token == JsonToken.START_ARRAY) {
+                readItems(parser, batch);
+            } else if (token == JsonToken.START_OBJECT) {
+                boolean sawFeatures = false;
+                while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                    String field = parser.getCurrentName();
+                    JsonToken value = parser.nextToken();
+                    if ("features".equals(field) && value == JsonToken.START_ARRAY) {
+                        readItems(parser, batch);
+                        sawFeatures = true;
+                    } else {
+                        parser.skipChildren();
+                    }
+                }
+                if (!sawFeatures) {
+                    throw new ValidationException("Seed document must be a JSON array or a GeoJSON FeatureCollection");
+                }
+            } else {
+                throw new ValidationException("Seed document must be a JSON array or a GeoJSON FeatureCollection");
+            }
+        } catch (IOException e) {
+            throw new ValidationException("Invalid seed document: " + e.getMessage());
+        }
+        batch.flush();
+
+        log.info("Seed load: {} inserted, {} already present, {} invalid", batch.inserted, batch.present, batch.invalid);
+        return new IngestionResult(batch.inserted, 0, batch.present + batch.invalid);
+    }
+
+    private int loadFile(org.springframework.core.io.Resource file) throws IOException {
+        String name = file.getFilename();
+        String version = file.contentLength() + ":" + lastModified(file);
+        Document run = mongoTemplate.getCollection(RUNS_COLLECTION).find(new Document("_id", name)).first();
+        if (run != null && COMPLETE.equals(run.getString("status")) && version.equals(run.getString("version"))) {
+            log.debug("Seed file {} already loaded", name);
+            return 0;
+        }
+
+        long start = System.nanoTime();
+        saveRun(name, new Document("status", "RUNNING").append("version", version).append("startedAt", Instant.now().toString()));
+        IngestionResult result;
+        try (InputStream in = file.getInputStream()) {
+            result = load(in);
+        } catch (ValidationException e) {
+            // A broken file must not keep the node from becoming ready; records before the error are kept
+            log.error("Seed file {} is invalid: {}", name, e.getMessage());
+            saveRun(name, new Document("status", "FAILED").append("version", version).append("error", e.getMessage()));
+            return 0;
+        }
+        saveRun(name, new Document("status", COMPLETE).append("version", version)
+            .append("inserted", result.getUpserted()).append("completedAt", Instant.now().toString()));
+        log.info("Seeded {} in {} ms: {} inserted, {} skipped", name, (System.nanoTime() - start) / 1_000_000,
+            result.getUpserted(), result.getSkipped());
+        return result.getUpserted();
+    }
+
+    private void saveRun(String name, Document fields) {
+        mongoTemplate.getCollection(RUNS_COLLECTION).updateOne(new Document("_id", name),
+            new Document("$set", fields), new UpdateOptions().upsert(true));
+    }
+
+    private static long lastModified(org.springframework.core.io.Resource file) {
+        try {
+            return file.lastModified();
+        } catch (IOException e) {
+            return 0;
+        }
+    }
+
+    // Objects one at a time, so only the current record is held as a tree
+    private void readItems(JsonParser parser, SeedBatch batch) throws IOException {
+        JsonToken token;
+        while ((token = parser.nextToken()) != JsonToken.END_ARRAY && token != null) {
+            if (token != JsonToken.START_OBJECT) {
+                parser.skipChildren();
+                batch.invalid++;
+                continue;
+            }
+            JsonNode item = parser.readValueAsTree();
+            Resource resource = toResource(item);
+            if (resource == null) {
+                batch.invalid++;
+            } else {
+                batch.add(resource);
+            }
+        }
+    }
+
+    /**
+     * A GeoJSON Point feature with name/type/address properties, or a flat object with those
+     * fields and lat/lon or a GeoJSON location; null if anything required is missing
+     */
+    static Resource toResource(JsonNode item) {
+        JsonNode properties = item.path("properties").isObject() ? item.get("properties") : item;
+        double[] position = position(item);
+        String name = text(properties, "name");
+        String type = text(properties, "type");
+        String address = text(properties, "address");
+        if (position == null || name == null || type == null || address == null) {
+            return null;
+        }
+
+        Resource resource = new Resource();
+        resource.setName(name);
+        resource.setType(type.toUpperCase(Locale.ROOT));
+        resource.setAddress(address);
+        resource.setLocation(new GeoJsonPoint(position[0], position[1]));
+        String id = text(item, "id");
+        if (id == null && properties != item) {
+            id = text(properties, "id");
+        }
+        resource.setId(id != null ? id : deterministicId(resource));
+        return resource;
+    }
+
+    private static double[] position(JsonNode item) {
+        JsonNode coordinates = item.path("geometry").path("coordinates");
+        if (!coordinates.isArray()) {
+            coordinates = item.path("location").path("coordinates");
+        }
+        double lon;
+        double lat;
+        if (coordinates.isArray() && coordinates.size() >= 2 && coordinates.get(0).isNumber() && coordinates.get(1).isNumber()) {
+            lon = coordinates.get(0).asDouble();
+            lat = coordinates.get(1).asDouble();
+        } else {
+            JsonNode properties = item.path("properties").isObject() ? item.get("properties") : item;
+            if (!properties.path("lat").isNumber() || !properties.path("lon").isNumber()) {
+                return null;
+            }
+            lat = properties.get("lat").asDouble();
+            lon = properties.get("lon").asDouble();
+        }
+        if (lat < -90 || lat > 90 || lon < -180 || lon > 180) {
+            return null;
+        }
+        return new double[] {lon, lat};
+    }
+
+    private static String text(JsonNode node, String field) {
+        JsonNode value = node.get(field);
+        if (value == null || value.isNull() || value.isContainerNode()) {
+            return null;
+        }
+        String text = value.asText().trim();
+        return text.isEmpty() ? null : text;
+    }
+
+    // 24 hex digits from the record's content, so the same record always maps to the same ObjectId
+    private static String deterministicId(Resource resource) {
+        String content = resource.getType() + "|" + resource.getName() + "|" + resource.getAddress()
+            + "|" + resource.getLocation().getX() + "|" + resource.getLocation().getY();
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-1").digest(content.getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(digest, 0, 12);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-1 not available", e);
+        }
+    }
+
+    // Pending records, written as one unordered bulk upsert per batchSize
+    private class SeedBatch {
+        private final Map<String, Resource> pending = new LinkedHashMap<>();
+        private int inserted;
+        private int present;
+        private int invalid;
+
+        void add(Resource resource) {
+            pending.put(resource.getId(), resource);
+            if (pending.size() >= batchSize) {
+                flush();
+            }
+        }
+
+        void flush() {
+            if (pending.isEmpty()) {
+                return;
+            }
+            List<Resource> records = new ArrayList<>(pending.values());
+            BulkOperations bulk = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, Resource.class);
+            for (Resource resource : records) {
+                // Insert only: stored records, possibly edited since, are left as they are
+                bulk.upsert(new Query(Criteria.where("_id").is(resource.getId())), new Update()
+                    .setOnInsert("name", resource.getName())
+                    .setOnInsert("type", resource.getType())
+                    .setOnInsert("address", resource.getAddress())
+                    .setOnInsert("location", resource.getLocation()));
+            }
+            BulkWriteResult result = bulk.execute();
+
+            List<Resource> insertedRecords = new ArrayList<>();
+            for (BulkWriteUpsert upsert : result.getUpserts()) {
+                insertedRecords.add(records.get(upsert.getIndex()));
+            }
+            inserted += insertedRecords.size();
+            present += records.size() - insertedRecords.size();
+            if (!insertedRecords.isEmpty()) {
+                cacheInvalidationService.invalidate(insertedRecords.stream().map(Resource::getLocation).toList());
+                // Only what was actually inserted; records already stored did not change
+                insertedRecords.forEach(resource -> eventPublisher.publishEvent(
+                    new ResourceChangeEvent(ResourceChangeEvent.INSERT, resource.getId(), resource)));
+            }
+            pending.clear();
+        }
+    }
+}
@@ -0,0 +1,222 @@
+package com.example.communitymap.util;
+
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+/**
+ * Minimal geohash encoder used to key spatial cache entries and invalidations
+ */
+public final class Geohash {
+
+    private static final char[] BASE32 = "0123456789bcdefghjkmnpqrstuvwxyz".toCharArray();
+    private static final double KM_PER_DEGREE_LAT = 111.32;
+
+    private Geohash() {
+    }
+
+    public static String encode(double lat, double lon, int precision) {
+        double minLat = -90, maxLat = 90;
+        double minLon = -180, maxLon = 180;
+        StringBuilder hash = new StringBuilder(precision);
+        boolean evenBit = true;
+        int bit = 0;
+        int ch = 0;
+
+        while (hash.length() < precision) {
+            if (evenBit) {
+                double mid = (minLon + maxLon) / 2;
+                if (lon >= mid) {
+                    ch = (ch << 1) | 1;
+                    minLon = mid;
+                } else {
+                    ch = ch << 1;
+                    maxLon = mid;
+                }
+            } else {
+                double mid = (minLat + maxLat) / 2;
+                if (lat >= mid) {
+                    ch = (ch << 1) | 1;
+                    minLat = mid;
+                } else {
+                    ch = ch << 1;
+                    maxLat = mid;
+                }
+            }
+            evenBit = !evenBit;
+
+            if (++bit == 5) {
+                hash.append(BASE32[ch]);
+                bit = 0;
+                ch = 0;
+            }
+        }
+        return hash.toString();
+    }
+
+    /**
+     * Bounds of a cell as {minLat, minLon, maxLat, maxLon}
+     */
+    public static double[] bounds(String hash) {
+        double minLat = -90, maxLat = 90;
+        double minLon = -180, maxLon = 180;
+        boolean evenBit = true;
+        for (int i = 0; i < hash.length(); i++) {
+            int value = indexOf(hash.charAt(i));
+            for (int bit = 4; bit >= 0; bit--) {
+                boolean set = ((value >> bit) & 1) == 1;
+                if (evenBit) {
+                    double mid = (minLon + maxLon) / 2;
+                    if (set) {
+                        minLon = mid;
+                    } else {
+                        maxLon = mid;
+                    }
+                } else {
+                    double mid = (minLat + maxLat) / 2;
+                    if (set) {
+                        minLat = mid;
+                    } else {
+                        maxLat = mid;
+                    }
+                }
+                evenBit = !evenBit;
+            }
+        }
+        return new double[] {minLat, minLon, maxLat, maxLon};
+    }
+
+    /**
+     * Whether the string is a geohash of the given length
+     */
+    public static boolean isValid(String hash, int precision) {
+        if (hash == null || hash.length() != precision) {
+            return false;
+        }
+        for (int i = 0; i < hash.length(); i++) {
+            if (indexOf(hash.charAt(i)) < 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * The cells at the given precision that make up a cell: itself or its prefix when it is at
+     * least that precise, otherwise all of its sub-cells
+     */
+    public static Set<String> cellsOf(String hash, int precision) {
+        if (hash.length() >= precision) {
+            return Set.of(hash.substring(0, precision));
+        }
+        double[] box = bounds(hash);
+        // Inset so cells that only touch the edges are not included
+        double[] size = cellSize(precision);
+        return cover(box[0] + size[0] / 4, box[1] + size[1] / 4, box[2] - size[0] / 4, box[3] - size[1] / 4, precision);
+    }
+
+    private static int indexOf(char c) {
+        for (int i = 0; i < BASE32.length; i++) {
+            if (BASE32[i] == c) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Cell height and width in degrees at the given precision, as {lat, lon}
+     */
+    public static double[] cellSize(int precision) {
+        int bits = precision * 5;
+        int lonBits = (bits + 1) / 2;
+        int latBits = bits / 2;
+        return new double[] {180.0 / (1L << latBits), 360.0 / (1L << lonBits)};
+    }
+
+    /**
+     * All cells intersecting the bounding box of a circle around the given point
+     */
+    public static Set<String> cover(double lat, double lon, double radiusKm, int precision) {
+        double[] box = boundingBox(lat, lon, radiusKm);
+        return cover(box[0], box[1], box[2], box[3], precision);
+    }
+
+    /**
+     * Number of cells {@link #cover(double, double, double, int)} would return, without enumerating them
+     */
+    public static long cellCount(double lat, double lon, double radiusKm, int precision) {
+        double[] box = boundingBox(lat, lon, radiusKm);
+        return cellCount(box[0], box[1], box[2], box[3], precision);
+    }
+
+    /**
+     * Number of cells intersecting the given bounding box, from the grid indices of its corners
+     */
+    public static long cellCount(double minLat, double minLon, double maxLat, double maxLon, int precision) {
+        minLat = Math.max(minLat, -90);
+        maxLat = Math.min(maxLat, 90);
+        minLon = Math.max(minLon, -180);
+        maxLon = Math.min(maxLon, 180);
+        int bits = precision * 5;
+        long latCells = 1L << (bits / 2);
+        long lonCells = 1L << ((bits + 1) / 2);
+        long rows = index(maxLat + 90, 180, latCells) - index(minLat + 90, 180, latCells) + 1;
+        long cols = index(maxLon + 180, 360, lonCells) - index(minLon + 180, 360, lonCells) + 1;
+        return Math.max(rows, 0) * Math.max(cols, 0);
+    }
+
+    /**
+     * The finest precision, up to maxPrecision, at which the circle is covered by at most maxCells cells
+     */
+    public static int precisionFor(double lat, double lon, double radiusKm, int maxPrecision, int maxCells) {
+        int precision = maxPrecision;
+        while (precision > 1 && cellCount(lat, lon, radiusKm, precision) > maxCells) {
+            precision--;
+        }
+        return precision;
+    }
+
+    // {minLat, minLon, maxLat, maxLon} of a circle
+    private static double[] boundingBox(double lat, double lon, double radiusKm) {
+        double dLat = radiusKm / KM_PER_DEGREE_LAT;
+        double cosLat = Math.max(Math.cos(Math.toRadians(lat)), 0.01);
+        double dLon = radiusKm / (KM_PER_DEGREE_LAT * cosLat);
+        return new double[] {lat - dLat, lon - dLon, lat + dLat, lon + dLon};
+    }
+
+    // Cell index along one axis; the upper edge belongs to the last cell, as in encode
+    private static long index(double offset, double span, long cells) {
+        return Math.min((long) Math.floor(offset / span * cells), cells - 1);
+    }
+
+    /**
+     * All cells intersecting the given bounding box (clamped to valid coordinates)
+     */
+    public static Set<String> cover(double minLat, double minLon, double maxLat, double maxLon, int precision) {
+        // The walk below would never reach a NaN or infinite edge
+        if (!Double.isFinite(minLat) || !Double.isFinite(minLon) || !Double.isFinite(maxLat) || !Double.isFinite(maxLon)) {
+            throw new IllegalArgumentException("Bounding box must be finite");
+        }
+        minLat = Math.max(minLat, -90);
+        maxLat = Math.min(maxLat, 90);
+        minLon = Math.max(minLon, -180);
+        maxLon = Math.min(maxLon, 180);
+
+        double[] size = cellSize(precision);
+        Set<String> cells = new LinkedHashSet<>();
+        for (double lat = minLat; ; lat += size[0]) {
+            double rowLat = Math.min(lat, maxLat);
+            for (double lon = minLon; ; lon += size[1]) {
+                double colLon = Math.min(lon, maxLon);
+                cells.add(encode(rowLat, colLon, precision));
+                if (colLon >= maxLon) {
+                    break;
+                }
+            }
+            if (rowLat >= maxLat) {
+                break;
+            }
+        }
+        return cells;
+    }
+}
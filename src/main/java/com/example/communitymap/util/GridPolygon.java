@@ -0,0 +1,228 @@
+package com.example.communitymap.util;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Point-in-polygon test for (multi)polygons with holes, accelerated by a raster of the
+ * bounding box. Cells entirely inside or outside answer immediately; only points in cells
+ * crossed by an edge are tested exactly, and then only against that cell's edges: a point
+ * is inside if the cell center is inside and the segment from the center to the point crosses
+ * an even number of edges (or the reverse). Coordinates are treated as planar lon/lat.
+ */
+public final class GridPolygon {
+
+    private static final byte OUTSIDE = 0;
+    private static final byte INSIDE = 1;
+    private static final byte BOUNDARY = 2;
+
+    private final double minX;
+    private final double minY;
+    private final double maxX;
+    private final double maxY;
+    private final int columns;
+    private final int rows;
+    private final double cellWidth;
+    private final double cellHeight;
+    private final byte[] cellStates;
+    private final boolean[] centerInside;
+    // Edges as x1, y1, x2, y2 per cell, only for boundary cells
+    private final double[][] cellEdges;
+
+    /**
+     * @param polygons each polygon is a list of rings (outer first, then holes), each ring
+     *                 a closed array of [lon, lat] positions
+     */
+    public GridPolygon(List<List<double[][]>> polygons) {
+        List<double[]> edges = new ArrayList<>();
+        double x0 = Double.POSITIVE_INFINITY, y0 = Double.POSITIVE_INFINITY;
+        double x1 = Double.NEGATIVE_INFINITY, y1 = Double.NEGATIVE_INFINITY;
+        for (List<double[][]> polygon : polygons) {
+            for (double[][] ring : polygon) {
+                for (int i = 0; i + 1 < ring.length; i++) {
+                    edges.add(new double[] {ring[i][0], ring[i][1], ring[i + 1][0], ring[i + 1][1]});
+                    x0 = Math.min(x0, ring[i][0]);
+                    y0 = Math.min(y0, ring[i][1]);
+                    x1 = Math.max(x1, ring[i][0]);
+                    y1 = Math.max(y1, ring[i][1]);
+                }
+            }
+        }
+        this.minX = x0;
+        this.minY = y0;
+        this.maxX = x1;
+        this.maxY = y1;
+
+        // About four cells per vertex keeps boundary cells down to a handful of edges each
+        int side = (int) Math.max(16, Math.min(512, Math.ceil(2 * Math.sqrt(edges.size()))));
+        this.columns = side;
+        this.rows = side;
+        this.cellWidth = Math.max((maxX - minX) / columns, 1e-12);
+        this.cellHeight = Math.max((maxY - minY) / rows, 1e-12);
+        this.cellStates = new byte[columns * rows];
+        this.centerInside = new boolean[columns * rows];
+
+        List<List<double[]>> edgesPerCell = new ArrayList<>(columns * rows);
+        for (int i = 0; i < columns * rows; i++) {
+            edgesPerCell.add(null);
+        }
+        for (double[] edge : edges) {
+            markEdge(edge, edgesPerCell);
+        }
+        this.cellEdges = new double[columns * rows][];
+        for (int cell = 0; cell < edgesPerCell.size(); cell++) {
+            List<double[]> cellList = edgesPerCell.get(cell);
+            if (cellList != null) {
+                double[] flat = new double[cellList.size() * 4];
+                for (int e = 0; e < cellList.size(); e++) {
+                    System.arraycopy(cellList.get(e), 0, flat, e * 4, 4);
+                }
+                cellEdges[cell] = flat;
+                cellStates[cell] = BOUNDARY;
+            }
+        }
+        classifyCenters(edges);
+    }
+
+    public double[] boundingBox() {
+        return new double[] {minX, minY, maxX, maxY};
+    }
+
+    public boolean contains(double x, double y) {
+        if (x < minX || x > maxX || y < minY || y > maxY) {
+            return false;
+        }
+        int column = Math.min((int) ((x - minX) / cellWidth), columns - 1);
+        int row = Math.min((int) ((y - minY) / cellHeight), rows - 1);
+        int cell = row * columns + column;
+        byte state = cellStates[cell];
+        if (state != BOUNDARY) {
+            return state == INSIDE;
+        }
+
+        double cx = minX + (column + 0.5) * cellWidth;
+        double cy = minY + (row + 0.5) * cellHeight;
+        boolean inside = centerInside[cell];
+        double[] local = cellEdges[cell];
+        for (int e = 0; e < local.length; e += 4) {
+            if (segmentsCross(cx, cy, x, y, local[e], local[e + 1], local[e + 2], local[e + 3])) {
+                inside = !inside;
+            }
+        }
+        return inside;
+    }
+
+    // Walk the cells the edge passes through (grid traversal) and attach the edge to each
+    private void markEdge(double[] edge, List<List<double[]>> edgesPerCell) {
+        double ax = edge[0], ay = edge[1], bx = edge[2], by = edge[3];
+        int column = clampColumn((int) Math.floor((ax - minX) / cellWidth));
+        int row = clampRow((int) Math.floor((ay - minY) / cellHeight));
+        int endColumn = clampColumn((int) Math.floor((bx - minX) / cellWidth));
+        int endRow = clampRow((int) Math.floor((by - minY) / cellHeight));
+
+        double dx = bx - ax;
+        double dy = by - ay;
+        int stepX = dx > 0 ? 1 : -1;
+        int stepY = dy > 0 ? 1 : -1;
+        double tDeltaX = dx == 0 ? Double.POSITIVE_INFINITY : cellWidth / Math.abs(dx);
+        double tDeltaY = dy == 0 ? Double.POSITIVE_INFINITY : cellHeight / Math.abs(dy);
+        double nextX = minX + (column + (stepX > 0 ? 1 : 0)) * cellWidth;
+        double nextY = minY + (row + (stepY > 0 ? 1 : 0)) * cellHeight;
+        double tMaxX = dx == 0 ? Double.POSITIVE_INFINITY : (nextX - ax) / dx;
+        double tMaxY = dy == 0 ? Double.POSITIVE_INFINITY : (nextY - ay) / dy;
+
+        int guard = columns + rows + 2;
+        while (true) {
+            attach(edge, row * columns + column, edgesPerCell);
+            if ((column == endColumn && row == endRow) || guard-- == 0) {
+                break;
+            }
+            // Also take the neighbour when the edge passes (almost) through a cell corner
+            if (Math.abs(tMaxX - tMaxY) < 1e-12) {
+                if (inGrid(column + stepX, row)) {
+                    attach(edge, row * columns + column + stepX, edgesPerCell);
+                }
+                if (inGrid(column, row + stepY)) {
+                    attach(edge, (row + stepY) * columns + column, edgesPerCell);
+                }
+            }
+            if (tMaxX < tMaxY) {
+                column = clampColumn(column + stepX);
+                tMaxX += tDeltaX;
+            } else {
+                row = clampRow(row + stepY);
+                tMaxY += tDeltaY;
+            }
+        }
+    }
+
+    private static void attach(double[] edge, int cell, List<List<double[]>> edgesPerCell) {
+        List<double[]> cellList = edgesPerCell.get(cell);
+        if (cellList == null) {
+            cellList = new ArrayList<>(4);
+            edgesPerCell.set(cell, cellList);
+        }
+        if (cellList.isEmpty() || cellList.get(cellList.size() - 1) != edge) {
+            cellList.add(edge);
+        }
+    }
+
+    // Scanline through each row of cell centers: one pass over the edges per row
+    private void classifyCenters(List<double[]> edges) {
+        double[] crossings = new double[edges.size()];
+        for (int row = 0; row < rows; row++) {
+            double y = minY + (row + 0.5) * cellHeight;
+            int count = 0;
+            for (double[] edge : edges) {
+                if ((edge[1] > y) != (edge[3] > y)) {
+                    crossings[count++] = edge[0] + (y - edge[1]) * (edge[2] - edge[0]) / (edge[3] - edge[1]);
+                }
+            }
+            Arrays.sort(crossings, 0, count);
+            int next = 0;
+            boolean inside = false;
+            for (int column = 0; column < columns; column++) {
+                double x = minX + (column + 0.5) * cellWidth;
+                while (next < count && crossings[next] <= x) {
+                    inside = !inside;
+                    next++;
+                }
+                int cell = row * columns + column;
+                centerInside[cell] = inside;
+                if (cellStates[cell] != BOUNDARY) {
+                    cellStates[cell] = inside ? INSIDE : OUTSIDE;
+                }
+            }
+        }
+    }
+
+    // Proper crossing of segment p1-p2 with edge q1-q2; edge endpoints are half-open on y like the ray cast
+    private static boolean segmentsCross(double p1x, double p1y, double p2x, double p2y,
+                                         double q1x, double q1y, double q2x, double q2y) {
+        double d1 = orientation(q1x, q1y, q2x, q2y, p1x, p1y);
+        double d2 = orientation(q1x, q1y, q2x, q2y, p2x, p2y);
+        if ((d1 > 0) == (d2 > 0) || d1 == 0 || d2 == 0) {
+            return false;
+        }
+        double d3 = orientation(p1x, p1y, p2x, p2y, q1x, q1y);
+        double d4 = orientation(p1x, p1y, p2x, p2y, q2x, q2y);
+        return (d3 > 0) != (d4 > 0) && d3 != d4;
+    }
+
+    private static double orientation(double ax, double ay, double bx, double by, double cx, double cy) {
+        return (bx - ax) * (cy - ay) - (by - ay) * (cx - ax);
+    }
+
+    private boolean inGrid(int column, int row) {
+        return column >= 0 && column < columns && row >= 0 && row < rows;
+    }
+
+    private int clampColumn(int column) {
+        return Math.max(0, Math.min(columns - 1, column));
+    }
+
+    private int clampRow(int row) {
+        return Math.max(0, Math.min(rows - 1, row));
+    }
+}
@@ -0,0 +1,124 @@
+package com.example.communitymap.util;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Supplier;
+
+/**
+ * Time spent per component (Overpass, MongoDB, cache, serialization...) during one request,
+ * reported in the Server-Timing header and the slow-request log. The recorder for the current
+ * request is held in a thread local and carried to executor threads by a task decorator;
+ * outside a request every call is a cheap no-op.
+ */
+public final class RequestTimings {
+
+    private static final ThreadLocal<RequestTimings> CURRENT = new ThreadLocal<>();
+
+    private final long startNanos = System.nanoTime();
+    // Few entries and short critical sections; parallel tasks of the same request may record concurrently
+    private final Map<String, long[]> spans = new LinkedHashMap<>();
+    private final Map<String, String> notes = new LinkedHashMap<>();
+
+    private RequestTimings() {
+    }
+
+    public static RequestTimings start() {
+        RequestTimings timings = new RequestTimings();
+        CURRENT.set(timings);
+        return timings;
+    }
+
+    public static void clear() {
+        CURRENT.remove();
+    }
+
+    /**
+     * Add the time since startNanos (from System.nanoTime) to the named span
+     */
+    public static void record(String span, long startNanos) {
+        recordNanos(span, System.nanoTime() - startNanos);
+    }
+
+    public static void recordNanos(String span, long nanos) {
+        RequestTimings timings = CURRENT.get();
+        if (timings != null) {
+            timings.add(span, nanos);
+        }
+    }
+
+    public static <T> T time(String span, Supplier<T> work) {
+        long start = System.nanoTime();
+        try {
+            return work.get();
+        } finally {
+            record(span, start);
+        }
+    }
+
+    /**
+     * Attach a value to the request, e.g. a cache outcome or payload size
+     */
+    public static void note(String name, Object value) {
+        RequestTimings timings = CURRENT.get();
+        if (timings != null) {
+            synchronized (timings) {
+                timings.notes.put(name, String.valueOf(value));
+            }
+        }
+    }
+
+    /**
+     * Run the task with the submitting thread's recorder, so work done on an executor counts
+     */
+    public static Runnable wrap(Runnable task) {
+        RequestTimings timings = CURRENT.get();
+        if (timings == null) {
+            return task;
+        }
+        return () -> {
+            RequestTimings previous = CURRENT.get();
+            CURRENT.set(timings);
+            try {
+                task.run();
+            } finally {
+                CURRENT.set(previous);
+            }
+        };
+    }
+
+    public long elapsedMillis() {
+        return (System.nanoTime() - startNanos) / 1_000_000;
+    }
+
+    private synchronized void add(String span, long nanos) {
+        long[] totals = spans.computeIfAbsent(span, s -> new long[2]);
+        totals[0] += nanos;
+        totals[1]++;
+    }
+
+    /**
+     * Header value such as: overpass;dur=812.4;desc="1x", mongo;dur=3.1;desc="2x", total;dur=820.0
+     */
+    public synchronized String serverTiming() {
+        StringBuilder header = new StringBuilder();
+        spans.forEach((span, totals) -> header.append(span)
+            .append(";dur=").append(millis(totals[0]))
+            .append(";desc=\"").append(totals[1]).append("x\", "));
+        return header.append("total;dur=").append(millis(System.nanoTime() - startNanos)).toString();
+    }
+
+    /**
+     * One-line key=value breakdown for logs
+     */
+    public synchronized String summary() {
+        StringBuilder line = new StringBuilder();
+        spans.forEach((span, totals) -> line.append(' ').append(span).append("_ms=").append(millis(totals[0]))
+            .append(' ').append(span).append("_calls=").append(totals[1]));
+        notes.forEach((name, value) -> line.append(' ').append(name).append('=').append(value));
+        return line.toString().trim();
+    }
+
+    private static String millis(long nanos) {
+        return String.valueOf(Math.round(nanos / 100_000.0) / 10.0);
+    }
+}
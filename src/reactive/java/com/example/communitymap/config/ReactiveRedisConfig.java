@@ -0,0 +1,25 @@
+package com.example.communitymap.config;
+
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+import org.springframework.data.redis.connection.ReactiveRedisConnectionFactory;
+import org.springframework.data.redis.core.ReactiveRedisTemplate;
+import org.springframework.data.redis.serializer.RedisSerializationContext;
+import org.springframework.data.redis.serializer.RedisSerializer;
+
+@Configuration
+@Profile("reactive")
+public class ReactiveRedisConfig {
+
+    // Same key and value encoding as RedisCacheManager. The reactive API caches whole areas under its
+    // own keys, while the servlet API caches geohash tiles (tile:<geohash>), so they do not share entries
+    @Bean
+    public ReactiveRedisTemplate<String, Object> resourceCacheRedisTemplate(ReactiveRedisConnectionFactory connectionFactory) {
+        RedisSerializationContext<String, Object> context = RedisSerializationContext
+                .<String, Object>newSerializationContext(RedisSerializer.string())
+                .value(RedisSerializer.java())
+                .build();
+        return new ReactiveRedisTemplate<>(connectionFactory, context);
+    }
+}
@@ -0,0 +1,54 @@
+package com.example.communitymap.controller;
+
+import com.example.communitymap.model.Resource;
+import com.example.communitymap.service.ReactiveResourceService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.*;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+@RestController
+@RequestMapping("/api/reactive/resources")
+@RequiredArgsConstructor
+@CrossOrigin(origins = {"http://localhost:3000", "http://127.0.0.1:3000"})
+@Profile("reactive")
+@Slf4j
+public class ReactiveResourceController {
+    
+    private final ReactiveResourceService resourceService;
+    
+    @GetMapping(produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public Flux<Resource> getAllResources() {
+        log.info("GET /api/reactive/resources - Streaming all resources");
+        return resourceService.getAllResources();
+    }
+    
+    @GetMapping("/{id}")
+    public Mono<Resource> getResourceById(@PathVariable String id) {
+        log.info("GET /api/reactive/resources/{} - Fetching resource by id", id);
+        return resourceService.getResourceById(id);
+    }
+    
+    @GetMapping(value = "/search/nearby", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public Flux<Resource> getNearbyResources(
+            @RequestParam double lat,
+            @RequestParam double lon,
+            @RequestParam(defaultValue = "1.0") double dist,
+            @RequestParam(defaultValue = "100") int limit) {
+        log.info("GET /api/reactive/resources/search/nearby - lat: {}, lon: {}, dist: {}", lat, lon, dist);
+        return resourceService.findResourcesNearby(lon, lat, dist, limit);
+    }
+    
+    @GetMapping(value = "/area", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public Flux<Resource> getAreaResources(
+            @RequestParam double lat,
+            @RequestParam double lon,
+            @RequestParam(defaultValue = "5.0") double radiusKm,
+            @RequestParam(defaultValue = "200") int limit) {
+        log.info("GET /api/reactive/resources/area - lat: {}, lon: {}, radius: {}km", lat, lon, radiusKm);
+        return resourceService.findResourcesInArea(lat, lon, radiusKm, limit);
+    }
+}
@@ -0,0 +1,17 @@
+package com.example.communitymap.repository;
+
+import com.example.communitymap.model.Resource;
+import org.springframework.context.annotation.Profile;
+import org.springframework.data.mongodb.repository.Query;
+import org.springframework.data.mongodb.repository.ReactiveMongoRepository;
+import org.springframework.stereotype.Repository;
+import reactor.core.publisher.Flux;
+
+@Repository
+@Profile("reactive")
+public interface ReactiveResourceRepository extends ReactiveMongoRepository<Resource, String> {
+    
+    // Streams nearest-first; callers bound the result with take() so the cursor is cancelled early
+    @Query("{ 'location': { $near: { $geometry: { type: 'Point', coordinates: [?1, ?0] }, $maxDistance: ?2 } } }")
+    Flux<Resource> findNearby(double latitude, double longitude, double maxDistance);
+}
@@ -0,0 +1,78 @@
+package com.example.communitymap.service;
+
+import com.example.communitymap.exception.UpstreamUnavailableException;
+import com.example.communitymap.model.Resource;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Service;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Flux;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Non-blocking Overpass client for the reactive profile
+ */
+@Service
+@Profile("reactive")
+@Slf4j
+public class ReactiveOverpassClient {
+
+    private static final int MAX_RESPONSE_BYTES = 16 * 1024 * 1024;
+
+    private final WebClient webClient;
+    private final OverpassElementMapper elementMapper;
+    private final Duration timeout;
+
+    public ReactiveOverpassClient(WebClient.Builder webClientBuilder,
+                                  OverpassElementMapper elementMapper,
+                                  @Value("${overpass.api.url:https://overpass-api.de/api/interpreter}") String overpassApiUrl,
+                                  @Value("${overpass.api.timeout:25000}") long timeoutMs) {
+        this.webClient = webClientBuilder
+                .baseUrl(overpassApiUrl)
+                .defaultHeader("User-Agent", "CommunityMap/1.0")
+                .codecs(codecs -> codecs.defaultCodecs().maxInMemorySize(MAX_RESPONSE_BYTES))
+                .build();
+        this.elementMapper = elementMapper;
+        this.timeout = Duration.ofMillis(timeoutMs);
+    }
+
+    /**
+     * Emit the resources around a point as they are mapped from the Overpass response.
+     * A failed call ends the stream with an {@link UpstreamUnavailableException}, like the
+     * blocking client, so it is never mistaken for an empty area.
+     */
+    @SuppressWarnings("unchecked")
+    public Flux<Resource> fetchAllResources(double lat, double lon, double radiusKm) {
+        double limitedRadius = Math.min(radiusKm, 5.0);
+        String query = OverpassService.buildCombinedQuery(lat, lon, limitedRadius);
+
+        return webClient.post()
+                .contentType(MediaType.APPLICATION_FORM_URLENCODED)
+                .bodyValue(query)
+                .retrieve()
+                .bodyToMono(new ParameterizedTypeReference<Map<String, Object>>() {})
+                .timeout(timeout)
+                .flatMapIterable(response -> {
+                    Object elements = response.get("elements");
+                    return elements instanceof List ? (List<Map<String, Object>>) elements : List.<Map<String, Object>>of();
+                })
+                .<Resource>handle((element, sink) -> {
+                    try {
+                        Resource resource = elementMapper.toResource(element, "ALL");
+                        if (resource != null) {
+                            sink.next(resource);
+                        }
+                    } catch (Exception e) {
+                        log.warn("Failed to parse element: {}", e.getMessage());
+                    }
+                })
+                .onErrorMap(e -> !(e instanceof UpstreamUnavailableException),
+                    e -> new UpstreamUnavailableException("Overpass query failed: " + e.getMessage(), e));
+    }
+}
@@ -0,0 +1,126 @@
+package com.example.communitymap.service;
+
+import com.example.communitymap.exception.ResourceNotFoundException;
+import com.example.communitymap.exception.UpstreamUnavailableException;
+import com.example.communitymap.model.Resource;
+import com.example.communitymap.repository.ReactiveResourceRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.data.redis.core.ReactiveRedisTemplate;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Non-blocking counterpart of {@link ResourceService} for the reactive profile.
+ * Area queries fan out to the database and the cached Overpass layer concurrently
+ * and stream the merged, deduplicated result.
+ */
+@Service
+@Profile("reactive")
+@Slf4j
+public class ReactiveResourceService {
+
+    // RedisCacheManager's key prefix for the allResources cache
+    private static final String CACHE_PREFIX = "allResources::";
+
+    private final ReactiveResourceRepository resourceRepository;
+    private final ReactiveOverpassClient overpassClient;
+    private final ReactiveRedisTemplate<String, Object> cacheTemplate;
+    private final CacheInvalidationService cacheInvalidationService;
+    private final Duration cacheTtl;
+
+    public ReactiveResourceService(ReactiveResourceRepository resourceRepository,
+                                   ReactiveOverpassClient overpassClient,
+                                   @Qualifier("resourceCacheRedisTemplate") ReactiveRedisTemplate<String, Object> cacheTemplate,
+                                   CacheInvalidationService cacheInvalidationService,
+                                   @Value("${cache.all-resources.ttl:PT6H}") Duration cacheTtl) {
+        this.resourceRepository = resourceRepository;
+        this.overpassClient = overpassClient;
+        this.cacheTemplate = cacheTemplate;
+        this.cacheInvalidationService = cacheInvalidationService;
+        this.cacheTtl = cacheTtl;
+    }
+
+    public Flux<Resource> getAllResources() {
+        log.debug("Streaming all resources");
+        return resourceRepository.findAll();
+    }
+
+    public Mono<Resource> getResourceById(String id) {
+        return resourceRepository.findById(id)
+            .switchIfEmpty(Mono.error(() -> new ResourceNotFoundException("Resource not found with id: " + id)));
+    }
+
+    public Flux<Resource> findResourcesNearby(double longitude, double latitude, double distanceInMiles, int limit) {
+        ResourceService.validateCoordinates(longitude, latitude);
+        ResourceService.validateDistance(distanceInMiles);
+        return resourceRepository.findNearby(latitude, longitude, distanceInMiles * ResourceService.METERS_PER_MILE).take(limit);
+    }
+
+    /**
+     * Database and Overpass results around a point, merged as they arrive.
+     * Elements known to both sources are emitted once (OSM id, else document id).
+     */
+    public Flux<Resource> findResourcesInArea(double lat, double lon, double radiusKm, int limit) {
+        ResourceService.validateCoordinates(lon, lat);
+        ResourceService.validateDistance(radiusKm / ResourceService.KM_PER_MILE);
+
+        Flux<Resource> local = resourceRepository.findNearby(lat, lon, radiusKm * 1000).take(limit);
+        Flux<Resource> upstream = cachedOverpassResources(lat, lon, radiusKm);
+
+        return Flux.merge(local, upstream)
+            .distinct(ReactiveResourceService::dedupKey)
+            .take(limit);
+    }
+
+    @SuppressWarnings("unchecked")
+    private Flux<Resource> cachedOverpassResources(double lat, double lon, double radiusKm) {
+        String key = OverpassService.areaCacheKey(lat, lon, radiusKm);
+        return cacheTemplate.opsForValue().get(CACHE_PREFIX + key)
+            .onErrorResume(e -> {
+                log.warn("Cache read failed for {}: {}", key, e.getMessage());
+                return Mono.empty();
+            })
+            .flatMapMany(cached -> Flux.fromIterable((List<Resource>) cached))
+            .switchIfEmpty(Flux.defer(() -> fetchAndCache(key, lat, lon, radiusKm)))
+            // Database results still stream when Overpass is down
+            .onErrorResume(UpstreamUnavailableException.class, e -> {
+                log.error("Error fetching data from Overpass API: {}", e.getMessage());
+                return Flux.empty();
+            });
+    }
+
+    // Registered before fetching and confirmed after caching, as in OverpassService, so a write
+    // to the area while the fetch runs cannot leave an outdated entry behind. A failed fetch
+    // errors before the cache write, so it is never cached as an empty area
+    private Flux<Resource> fetchAndCache(String key, double lat, double lon, double radiusKm) {
+        double limitedRadius = Math.min(radiusKm, 5.0);
+        return Mono.fromRunnable(() -> cacheInvalidationService.registerAreaEntry("allResources", key, lat, lon, limitedRadius))
+            .subscribeOn(Schedulers.boundedElastic())
+            .then(overpassClient.fetchAllResources(lat, lon, radiusKm).collectList())
+            .flatMap(resources -> cacheTemplate.opsForValue().set(CACHE_PREFIX + key, new ArrayList<>(resources), cacheTtl)
+                .then(Mono.fromCallable(() -> cacheInvalidationService.confirmAreaEntry("allResources", key, lat, lon, limitedRadius))
+                    .subscribeOn(Schedulers.boundedElastic()))
+                .onErrorResume(e -> {
+                    log.warn("Cache write failed for {}: {}", key, e.getMessage());
+                    return Mono.empty();
+                })
+                .thenReturn(resources))
+            .flatMapIterable(resources -> resources);
+    }
+
+    private static Object dedupKey(Resource resource) {
+        if (resource.getOsmId() != null) {
+            return resource.getOsmId();
+        }
+        return resource.getId() != null ? resource.getId() : resource;
+    }
+}